@@ -0,0 +1,92 @@
+package net.kendo.nightfall.Network;
+
+import net.minecraft.network.PacketByteBuf;
+
+import java.util.Collection;
+
+/**
+ * Compact set of skin hashes. Answers "definitely absent" or "probably present".
+ * Skin hashes are already SHA-1, so bit positions come straight from the hash
+ * via double hashing instead of rehashing.
+ */
+public class HashBloomFilter {
+    private static final int HASHES = 7;
+    private static final int BITS_PER_ENTRY = 10; // ~1% false positives with 7 hashes
+    private static final int MAX_WORDS = 1 << 14; // 128 KB on the wire at most
+
+    private final long[] words;
+    private final int bitCount;
+
+    private HashBloomFilter(long[] words) {
+        this.words = words;
+        this.bitCount = words.length * 64;
+    }
+
+    /**
+     * Filter sized for the given hashes, with all of them added
+     */
+    public static HashBloomFilter of(Collection<String> hashes) {
+        int bits = Math.max(hashes.size(), 16) * BITS_PER_ENTRY;
+        HashBloomFilter filter = new HashBloomFilter(new long[Math.min((bits + 63) / 64, MAX_WORDS)]);
+        for (String hash : hashes) {
+            filter.add(hash);
+        }
+        return filter;
+    }
+
+    public void add(String hash) {
+        long h1 = part(hash, 0);
+        long h2 = part(hash, 16);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String hash) {
+        long h1 = part(hash, 0);
+        long h2 = part(hash, 16);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long part(String hash, int offset) {
+        // Anything that isn't a full SHA-1 hex string still maps somewhere deterministic
+        if (hash.length() < offset + 16) {
+            return hash.hashCode() * 0x9E3779B97F4A7C15L + offset;
+        }
+        try {
+            return Long.parseUnsignedLong(hash, offset, offset + 16, 16);
+        } catch (NumberFormatException e) {
+            return hash.hashCode() * 0x9E3779B97F4A7C15L + offset;
+        }
+    }
+
+    public void write(PacketByteBuf buf) {
+        buf.writeVarInt(words.length);
+        for (long word : words) {
+            buf.writeLong(word);
+        }
+    }
+
+    /**
+     * Read a filter, or null if it is empty or oversized
+     */
+    public static HashBloomFilter read(PacketByteBuf buf) {
+        int length = buf.readVarInt();
+        if (length <= 0 || length > MAX_WORDS || buf.readableBytes() < length * 8) {
+            return null;
+        }
+
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = buf.readLong();
+        }
+        return new HashBloomFilter(words);
+    }
+}
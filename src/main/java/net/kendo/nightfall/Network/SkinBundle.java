@@ -0,0 +1,120 @@
+package net.kendo.nightfall.Network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Several skins packed into one deflated stream, so a join burst goes out as a few
+ * large transfers instead of a START/CHUNK/END sequence per skin.
+ *
+ * Layout (before deflate): entry count (int), then per entry owner (2 longs),
+ * slim (boolean), codec (byte), length (int), payload.
+ */
+public class SkinBundle {
+    // Caps for the unpacked stream; a bundle is never bigger than a single transfer may be
+    public static final int MAX_PACKED_INPUT = 1024 * 1024;
+    private static final int MAX_UNPACKED = 4 * 1024 * 1024;
+    private static final int MAX_ENTRIES = 1024;
+
+    public static class Entry {
+        public final UUID owner;
+        public final boolean isSlim;
+        public final byte codec;
+        public final byte[] data;
+
+        public Entry(UUID owner, boolean isSlim, byte codec, byte[] data) {
+            this.owner = owner;
+            this.isSlim = isSlim;
+            this.codec = codec;
+            this.data = data;
+        }
+    }
+
+    public static byte[] pack(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(out, deflater, 8192))) {
+            data.writeInt(entries.size());
+            for (Entry entry : entries) {
+                data.writeLong(entry.owner.getMostSignificantBits());
+                data.writeLong(entry.owner.getLeastSignificantBits());
+                data.writeBoolean(entry.isSlim);
+                data.writeByte(entry.codec);
+                data.writeInt(entry.data.length);
+                data.write(entry.data);
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Entry> unpack(byte[] packed) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BoundedInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(packed)), MAX_UNPACKED))) {
+            int count = data.readInt();
+            if (count < 0 || count > MAX_ENTRIES) {
+                throw new IOException("Bad bundle entry count " + count);
+            }
+
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID owner = new UUID(data.readLong(), data.readLong());
+                boolean isSlim = data.readBoolean();
+                byte codec = data.readByte();
+                int length = data.readInt();
+                if (length <= 0 || length > MAX_UNPACKED) {
+                    throw new IOException("Bad bundle entry length " + length);
+                }
+                byte[] payload = new byte[length];
+                data.readFully(payload);
+                entries.add(new Entry(owner, isSlim, codec, payload));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Stops inflating once the limit is reached, so a tiny bundle can't expand without bound
+     */
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) throw new IOException("Bundle too large");
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) throw new IOException("Bundle too large");
+            int count = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (count > 0) remaining -= count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package net.kendo.nightfall.Network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * START/CHUNK/END frames for one skin (or a bundle of them), encoded once and shared by every recipient.
+ * Chunk frames wrap the blob instead of copying it; each queued send holds a retained
+ * duplicate that is released when the write finishes.
+ */
+public class SkinFrames {
+    public final UUID ownerUuid;
+    public final String hash;
+    public final byte codec;
+    public final boolean isSlim;
+    public final int chunkSize;
+
+    private final Identifier startChannel;
+    private final ByteBuf start;
+    private final ByteBuf[] chunks;
+    private final ByteBuf end;
+    private final int payloadSize;
+
+    public SkinFrames(UUID ownerUuid, String hash, byte[] data, byte codec, boolean isSlim, int chunkSize) {
+        this(ownerUuid, hash, data, codec, isSlim, chunkSize, SkinNetworkHandler.SYNC_SKIN_START, startFrame(ownerUuid, data, codec, isSlim, chunkSize));
+    }
+
+    private SkinFrames(UUID ownerUuid, String hash, byte[] data, byte codec, boolean isSlim, int chunkSize,
+                       Identifier startChannel, ByteBuf start) {
+        this.ownerUuid = ownerUuid;
+        this.hash = hash;
+        this.codec = codec;
+        this.isSlim = isSlim;
+        this.chunkSize = chunkSize;
+        this.payloadSize = data.length;
+        this.startChannel = startChannel;
+        this.start = start;
+
+        int totalChunks = chunkCount(data, chunkSize);
+
+        this.chunks = new ByteBuf[totalChunks];
+        for (int i = 0; i < totalChunks; i++) {
+            int offset = i * chunkSize;
+            int size = Math.min(chunkSize, data.length - offset);
+
+            PacketByteBuf header = new PacketByteBuf(Unpooled.buffer(24));
+            header.writeUuid(ownerUuid);
+            header.writeInt(i);
+            header.writeInt(size);
+
+            // Trailing checksum; older receivers stop reading after the data
+            CRC32 crc = new CRC32();
+            crc.update(data, offset, size);
+            ByteBuf trailer = Unpooled.buffer(4).writeInt((int) crc.getValue());
+
+            chunks[i] = Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(data, offset, size), trailer);
+        }
+
+        PacketByteBuf endBuf = new PacketByteBuf(Unpooled.buffer(16));
+        endBuf.writeUuid(ownerUuid);
+        this.end = endBuf;
+    }
+
+    /**
+     * Frames for a packed bundle of several skins (see {@link SkinBundle}). It is announced on
+     * its own start channel under a one-off transfer id; chunks and end are the usual ones.
+     */
+    public static SkinFrames bundle(UUID bundleId, byte[] packed, int entryCount, int chunkSize) {
+        PacketByteBuf startBuf = new PacketByteBuf(Unpooled.buffer(32));
+        startBuf.writeUuid(bundleId);
+        startBuf.writeVarInt(entryCount);
+        startBuf.writeInt(chunkCount(packed, chunkSize));
+        startBuf.writeInt(packed.length);
+        startBuf.writeInt(chunkSize);
+        return new SkinFrames(bundleId, null, packed, SkinCodecs.PNG, false, chunkSize, SkinNetworkHandler.SKIN_BUNDLE, startBuf);
+    }
+
+    private static ByteBuf startFrame(UUID ownerUuid, byte[] data, byte codec, boolean isSlim, int chunkSize) {
+        PacketByteBuf startBuf = new PacketByteBuf(Unpooled.buffer(34));
+        startBuf.writeUuid(ownerUuid);
+        startBuf.writeBoolean(isSlim);
+        startBuf.writeInt(chunkCount(data, chunkSize));
+        startBuf.writeInt(data.length);
+        startBuf.writeByte(codec);
+        startBuf.writeInt(chunkSize);
+        return startBuf;
+    }
+
+    private static int chunkCount(byte[] data, int chunkSize) {
+        return (data.length + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * Queue every frame on a connection's send queue
+     */
+    public void queueTo(SkinSendQueue queue) {
+        queue.enqueueShared(startChannel, start);
+        for (ByteBuf chunk : chunks) {
+            queue.enqueueShared(SkinNetworkHandler.SYNC_SKIN_CHUNK, chunk);
+        }
+        queue.enqueueShared(SkinNetworkHandler.SYNC_SKIN_END, end);
+    }
+
+    /**
+     * Queue the given chunks again, followed by the end frame. Indices out of range are ignored.
+     */
+    public void queueResend(SkinSendQueue queue, int[] indices) {
+        for (int index : indices) {
+            if (index >= 0 && index < chunks.length) {
+                queue.enqueueShared(SkinNetworkHandler.SYNC_SKIN_CHUNK, chunks[index]);
+            }
+        }
+        queue.enqueueShared(SkinNetworkHandler.SYNC_SKIN_END, end);
+    }
+
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * Take another reference, for holding on to the frames past the owner's release
+     */
+    public SkinFrames retain() {
+        start.retain();
+        for (ByteBuf chunk : chunks) {
+            chunk.retain();
+        }
+        end.retain();
+        return this;
+    }
+
+    /**
+     * Drop the owner's reference; buffers are freed once in-flight sends finish
+     */
+    public void release() {
+        start.release();
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+        end.release();
+    }
+}
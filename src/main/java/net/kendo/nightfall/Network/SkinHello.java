@@ -0,0 +1,102 @@
+package net.kendo.nightfall.Network;
+
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.minecraft.network.PacketByteBuf;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Protocol version and capabilities one side advertises when the connection is set up.
+ * Peers that never send one are treated as {@link #LEGACY}: full PNG streams only.
+ */
+public class SkinHello {
+    public static final int PROTOCOL_VERSION = 2;
+
+    // Optional features; a mode is only used when both sides advertise it
+    public static final int FEATURE_HASH_DEDUP = 1;     // SKIN_HASH announcements + REQUEST_SKIN
+    public static final int FEATURE_INVENTORY = 1 << 1; // join inventory, blobs pushed when missing
+    public static final int FEATURE_MODEL_UPDATE = 1 << 2; // model-only updates
+    public static final int FEATURE_BULK = 1 << 3; // pushed skins packed into compressed bundles
+    public static final int FEATURE_RESEND = 1 << 4; // missing or corrupt chunks are asked for again (SKIN_NACK)
+
+    public static final int LOCAL_FEATURES = FEATURE_HASH_DEDUP | FEATURE_INVENTORY | FEATURE_MODEL_UPDATE | FEATURE_BULK
+            | FEATURE_RESEND;
+
+    // What the chunk stream looked like before versioning
+    public static final int LEGACY_CHUNK_SIZE = 20000;
+    // Bounds on an advertised chunk size; the ceiling keeps a frame well inside the 1 MB clientbound payload limit
+    public static final int MIN_CHUNK_SIZE = 1024;
+    public static final int MAX_CHUNK_SIZE = 256 * 1024;
+    public static final SkinHello LEGACY = new SkinHello(1, Set.of(SkinCodecs.PNG), LEGACY_CHUNK_SIZE, 512, 0);
+
+    public final int version;
+    public final Set<Byte> codecs;
+    public final int maxChunkSize;
+    public final int maxResolution;
+    public final int features;
+
+    public SkinHello(int version, Set<Byte> codecs, int maxChunkSize, int maxResolution, int features) {
+        this.version = version;
+        this.codecs = codecs;
+        this.maxChunkSize = maxChunkSize;
+        this.maxResolution = maxResolution;
+        this.features = features;
+    }
+
+    /**
+     * What this build supports
+     */
+    public static SkinHello local(int maxChunkSize, int maxResolution) {
+        Set<Byte> codecs = new HashSet<>();
+        for (byte id : SkinCodecs.supportedIds()) {
+            codecs.add(id);
+        }
+        return new SkinHello(PROTOCOL_VERSION, Collections.unmodifiableSet(codecs), maxChunkSize, maxResolution, LOCAL_FEATURES);
+    }
+
+    public boolean supports(int feature) {
+        return (features & feature) == feature;
+    }
+
+    public void write(PacketByteBuf buf) {
+        buf.writeVarInt(version);
+        byte[] ids = new byte[codecs.size()];
+        int i = 0;
+        for (byte id : codecs) {
+            ids[i++] = id;
+        }
+        buf.writeByteArray(ids);
+        buf.writeVarInt(maxChunkSize);
+        buf.writeVarInt(maxResolution);
+        buf.writeVarInt(features);
+    }
+
+    /**
+     * Read a peer's hello. Unknown codecs and feature bits are dropped, so newer
+     * peers negotiate down to what we understand.
+     */
+    public static SkinHello read(PacketByteBuf buf) {
+        int version = buf.readVarInt();
+
+        Set<Byte> codecs = new HashSet<>();
+        codecs.add(SkinCodecs.PNG);
+        for (byte id : buf.readByteArray(64)) {
+            if (SkinCodecs.get(id) != null) {
+                codecs.add(id);
+            }
+        }
+
+        int maxChunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, buf.readVarInt()));
+        int maxResolution = Math.max(64, buf.readVarInt());
+        int features = buf.readVarInt() & LOCAL_FEATURES;
+        return new SkinHello(version, Collections.unmodifiableSet(codecs), maxChunkSize, maxResolution, features);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " codecs=" + codecs + " chunk=" + maxChunkSize
+                + " res=" + maxResolution + " features=" + Integer.toBinaryString(features);
+    }
+}
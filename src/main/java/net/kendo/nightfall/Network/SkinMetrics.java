@@ -0,0 +1,318 @@
+package net.kendo.nightfall.Network;
+
+import net.kendo.nightfall.NightfallSkin;
+import net.kendo.nightfall.ServerSkinManager;
+import net.kendo.nightfall.SkinBlobStore;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side counters for skin sync, shown by /skinstats and exposed over JMX.
+ * Traffic is recorded from both the Netty threads and the server thread.
+ */
+public class SkinMetrics implements SkinMetricsMXBean {
+    private static final SkinMetrics INSTANCE = new SkinMetrics();
+    private static final String OBJECT_NAME = "net.kendo.nightfall:type=SkinMetrics";
+
+    private final Map<UUID, PlayerTraffic> players = new ConcurrentHashMap<>();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong invalidUploads = new AtomicLong();
+
+    // Start to end frame of finished uploads, in milliseconds
+    private final Histogram reassemblyLatency = new Histogram();
+    // Storing and announcing one upload on the server thread, in microseconds
+    private final Histogram broadcastTime = new Histogram();
+    // One tick's announcement drain for one player, in microseconds
+    private final Histogram drainTime = new Histogram();
+
+    public static SkinMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Traffic for one connected player
+     */
+    public static class PlayerTraffic {
+        public final String name;
+        public final SkinSendQueue sendQueue;
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong sent = new AtomicLong();
+
+        PlayerTraffic(String name, SkinSendQueue sendQueue) {
+            this.name = name;
+            this.sendQueue = sendQueue;
+        }
+
+        public long getReceived() {
+            return received.get();
+        }
+
+        public long getSent() {
+            return sent.get();
+        }
+    }
+
+    /**
+     * Power-of-two buckets; percentiles report the upper bound of the bucket they fall in
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 32;
+        private final long[] counts = new long[BUCKETS];
+        private long count = 0;
+        private long max = 0;
+
+        public synchronized void record(long value) {
+            value = Math.max(0, value);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            counts[bucket]++;
+            count++;
+            max = Math.max(max, value);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getMax() {
+            return max;
+        }
+
+        public synchronized long percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "p50 " + percentile(0.5) + ", p95 " + percentile(0.95) + ", max " + max + " (" + count + " samples)";
+        }
+    }
+
+    /**
+     * Register with the platform MBean server; failures only cost the JMX view
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.warn("Failed to register skin metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    public void onPlayerJoin(UUID uuid, String name, SkinSendQueue sendQueue) {
+        players.put(uuid, new PlayerTraffic(name, sendQueue));
+    }
+
+    public void onPlayerDisconnect(UUID uuid) {
+        players.remove(uuid);
+    }
+
+    public void recordReceived(UUID uuid, int bytes) {
+        bytesReceived.addAndGet(bytes);
+        PlayerTraffic traffic = players.get(uuid);
+        if (traffic != null) {
+            traffic.received.addAndGet(bytes);
+        }
+    }
+
+    public void recordSent(UUID uuid, int bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        bytesSent.addAndGet(bytes);
+        PlayerTraffic traffic = players.get(uuid);
+        if (traffic != null) {
+            traffic.sent.addAndGet(bytes);
+        }
+    }
+
+    public void recordInvalid() {
+        invalidUploads.incrementAndGet();
+    }
+
+    public void recordReassembly(long elapsedMs) {
+        reassemblyLatency.record(elapsedMs);
+    }
+
+    public void recordBroadcast(long elapsedNanos) {
+        broadcastTime.record(elapsedNanos / 1000);
+    }
+
+    public void recordDrain(long elapsedNanos) {
+        drainTime.record(elapsedNanos / 1000);
+    }
+
+    public List<PlayerTraffic> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public Histogram getReassemblyLatency() {
+        return reassemblyLatency;
+    }
+
+    public Histogram getBroadcastTime() {
+        return broadcastTime;
+    }
+
+    public Histogram getDrainTime() {
+        return drainTime;
+    }
+
+    public long getTransfersRejected() {
+        return SkinNetworkHandler.getServerReassembler().getRejectedCount();
+    }
+
+    public long getTransfersExpired() {
+        return SkinNetworkHandler.getServerReassembler().getExpiredCount();
+    }
+
+    public long getTransfersIncomplete() {
+        return SkinNetworkHandler.getServerReassembler().getIncompleteCount();
+    }
+
+    public long getCorruptChunks() {
+        return SkinNetworkHandler.getServerReassembler().getCorruptChunkCount();
+    }
+
+    public long getResendRequests() {
+        return SkinNetworkHandler.getServerReassembler().getResendRequestCount();
+    }
+
+    /**
+     * Uploads that arrived whole but failed validation (or were dropped with the worker queue full)
+     */
+    public long getTransfersInvalid() {
+        return invalidUploads.get();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public Map<String, Long> getBytesReceivedByPlayer() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (PlayerTraffic traffic : players.values()) {
+            result.put(traffic.name, traffic.getReceived());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getBytesSentByPlayer() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (PlayerTraffic traffic : players.values()) {
+            result.put(traffic.name, traffic.getSent());
+        }
+        return result;
+    }
+
+    @Override
+    public long getQueuedSendBytes() {
+        long total = 0;
+        for (PlayerTraffic traffic : players.values()) {
+            total += traffic.sendQueue.getQueuedBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public int getTransfersInFlight() {
+        return SkinNetworkHandler.getServerReassembler().getInFlightCount();
+    }
+
+    @Override
+    public long getTransfersCompleted() {
+        return SkinNetworkHandler.getServerReassembler().getCompletedCount();
+    }
+
+    @Override
+    public long getTransfersFailed() {
+        return getTransfersRejected() + getTransfersExpired() + getTransfersIncomplete() + getTransfersInvalid();
+    }
+
+    @Override
+    public double getReassemblyLatencyP50Millis() {
+        return reassemblyLatency.percentile(0.5);
+    }
+
+    @Override
+    public double getReassemblyLatencyP95Millis() {
+        return reassemblyLatency.percentile(0.95);
+    }
+
+    @Override
+    public double getReassemblyLatencyMaxMillis() {
+        return reassemblyLatency.getMax();
+    }
+
+    @Override
+    public double getBroadcastTimeP50Micros() {
+        return broadcastTime.percentile(0.5);
+    }
+
+    @Override
+    public double getBroadcastTimeP95Micros() {
+        return broadcastTime.percentile(0.95);
+    }
+
+    @Override
+    public double getBroadcastTimeMaxMicros() {
+        return broadcastTime.getMax();
+    }
+
+    @Override
+    public double getDrainTimeP50Micros() {
+        return drainTime.percentile(0.5);
+    }
+
+    @Override
+    public double getDrainTimeP95Micros() {
+        return drainTime.percentile(0.95);
+    }
+
+    @Override
+    public double getDrainTimeMaxMicros() {
+        return drainTime.getMax();
+    }
+
+    @Override
+    public int getStoredSkins() {
+        return ServerSkinManager.getSkinCount();
+    }
+
+    @Override
+    public int getStoredBlobs() {
+        return SkinBlobStore.size();
+    }
+
+    @Override
+    public long getHeldBytes() {
+        return SkinBlobStore.totalBytes();
+    }
+}
@@ -0,0 +1,48 @@
+package net.kendo.nightfall.Network;
+
+import java.util.Map;
+
+/**
+ * Server-side skin metrics as exposed over JMX (see {@link SkinMetrics})
+ */
+public interface SkinMetricsMXBean {
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    Map<String, Long> getBytesReceivedByPlayer();
+
+    Map<String, Long> getBytesSentByPlayer();
+
+    long getQueuedSendBytes();
+
+    int getTransfersInFlight();
+
+    long getTransfersCompleted();
+
+    long getTransfersFailed();
+
+    double getReassemblyLatencyP50Millis();
+
+    double getReassemblyLatencyP95Millis();
+
+    double getReassemblyLatencyMaxMillis();
+
+    double getBroadcastTimeP50Micros();
+
+    double getBroadcastTimeP95Micros();
+
+    double getBroadcastTimeMaxMicros();
+
+    double getDrainTimeP50Micros();
+
+    double getDrainTimeP95Micros();
+
+    double getDrainTimeMaxMicros();
+
+    int getStoredSkins();
+
+    int getStoredBlobs();
+
+    long getHeldBytes();
+}
@@ -2,72 +2,477 @@ package net.kendo.nightfall.Network;
 
 import io.netty.buffer.Unpooled;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+import net.fabricmc.fabric.api.networking.v1.PlayerLookup;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.kendo.nightfall.NightfallSkin;
+import net.kendo.nightfall.RemoteSkinLoader;
 import net.kendo.nightfall.ServerSkinManager;
+import net.kendo.nightfall.SkinBlobStore;
+import net.kendo.nightfall.SkinCache;
+import net.kendo.nightfall.SkinHash;
 import net.kendo.nightfall.SkinManager;
+import net.kendo.nightfall.SkinNetworkConfig;
+import net.kendo.nightfall.codec.SkinCodec;
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.kendo.nightfall.mixin.ServerPlayNetworkHandlerAccessor;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.entity.Entity;
+import net.minecraft.network.ClientConnection;
 import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
 
 import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 
 public class SkinNetworkHandler {
     public static final Identifier SYNC_SKIN_START = new Identifier("skinchanger", "sync_skin_start");
     public static final Identifier SYNC_SKIN_CHUNK = new Identifier("skinchanger", "sync_skin_chunk");
     public static final Identifier SYNC_SKIN_END = new Identifier("skinchanger", "sync_skin_end");
     public static final Identifier RESET_SKIN = new Identifier("skinchanger", "reset_skin");
+    // Server -> client: "player X now wears hash H"; client -> server: "send me the blob for H"
+    public static final Identifier SKIN_HASH = new Identifier("skinchanger", "skin_hash");
+    public static final Identifier REQUEST_SKIN = new Identifier("skinchanger", "request_skin");
+    // Slim/Wide toggle without resending the image
+    public static final Identifier MODEL_UPDATE = new Identifier("skinchanger", "model_update");
+    // Both directions at join: protocol version and capabilities (see SkinHello)
+    public static final Identifier SKIN_HELLO = new Identifier("skinchanger", "hello");
+    // Client -> server: skin channels are up, start delivering; server -> client: acknowledged
+    public static final Identifier SKIN_READY = new Identifier("skinchanger", "ready");
+    // Client -> server at join: Bloom filter of the skin hashes held in the client's disk cache
+    public static final Identifier SKIN_INVENTORY = new Identifier("skinchanger", "inventory");
+    // Server -> client: start of a bundle of several skins; chunks and end use the usual channels
+    public static final Identifier SKIN_BUNDLE = new Identifier("skinchanger", "bundle");
+    // Both directions: chunk indices of a transfer that arrived missing or corrupt, to be sent again
+    public static final Identifier SKIN_NACK = new Identifier("skinchanger", "nack");
 
-    private static final int CHUNK_SIZE = 20000;
+    // Chunk sizes we send with (capped by what the peer accepts) and accept. Client uploads
+    // stay below the 32 KB serverbound payload limit; the server can use larger chunks.
+    private static final int UPLOAD_CHUNK_SIZE = SkinHello.LEGACY_CHUNK_SIZE;
+    private static final int DOWNLOAD_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_UPLOAD_CHUNK_SIZE = 30000;
+    private static final int MAX_DOWNLOAD_CHUNK_SIZE = 256 * 1024;
+    // Largest skin each side accepts
+    private static final int SERVER_MAX_RESOLUTION = 512;
+    private static final int CLIENT_MAX_RESOLUTION = 1024;
+    private static final long REQUEST_RETRY_MS = 30000;
+    private static final int SWEEP_INTERVAL_TICKS = 20;
+    // Rough wire cost of one SKIN_HASH announcement
+    private static final int ANNOUNCEMENT_BYTES = 64;
+    // Ranks owners in another dimension (or offline) behind everyone in the viewer's own
+    private static final double OTHER_DIMENSION_PENALTY = 1.0e15;
+    // Clients that never say ready (older builds) start receiving after this long
+    private static final int READY_FALLBACK_TICKS = 100;
+    // Servers that never acknowledge (no mod, older builds) don't hold up the auto-apply longer than this
+    private static final int SERVER_READY_TIMEOUT_TICKS = 40;
+    // Times a receiver asks for lost chunks before giving up on a transfer
+    private static final int MAX_RESEND_REQUESTS = 3;
+    // How long sent frames are kept for resending (server ticks / client milliseconds)
+    private static final int RESEND_WINDOW_TICKS = 60 * 20;
+    private static final long RESEND_WINDOW_MS = 60_000;
+    // Most recently used cached hashes advertised at join
+    private static final int MAX_INVENTORY_HASHES = 4096;
     private static int maxMultiplayerSize = 512;
 
-    // Storage for assembling chunked data
-    private static final Map<UUID, ChunkedSkinData> receivingData = new ConcurrentHashMap<>();
+    // Everything the client receives comes from its one server connection
+    private static final UUID SERVER_PEER = new UUID(0L, 0L);
 
-    private static class ChunkedSkinData {
-        final int totalChunks;
-        final Map<Integer, byte[]> chunks;
-        final boolean isSlim;
-        final long timestamp;
+    // Server: one upload per player at a time, 64 MB across all uploads
+    private static final SkinReassembler.Limits SERVER_LIMITS =
+            new SkinReassembler.Limits(2 * 1024 * 1024, 64L * 1024 * 1024, 2L * 1024 * 1024, 1, 30000);
+    // Client: many skins can stream in from the server at once
+    private static final SkinReassembler.Limits CLIENT_LIMITS =
+            new SkinReassembler.Limits(2 * 1024 * 1024, 128L * 1024 * 1024, 128L * 1024 * 1024, 512, 60000);
 
-        ChunkedSkinData(int totalChunks, boolean isSlim) {
-            this.totalChunks = totalChunks;
-            this.chunks = new HashMap<>();
-            this.isSlim = isSlim;
-            this.timestamp = System.currentTimeMillis();
+    // Reassembly of incoming chunked transfers, one engine per side (both run in singleplayer)
+    private static final SkinReassembler clientReassembler = new SkinReassembler(MAX_DOWNLOAD_CHUNK_SIZE, CLIENT_LIMITS);
+    private static final SkinReassembler serverReassembler = new SkinReassembler(MAX_UPLOAD_CHUNK_SIZE, SERVER_LIMITS);
+    private static int serverTicks = 0;
+    private static int clientTicks = 0;
+    // Client tick at which to stop waiting for the server's ready acknowledgement, -1 when not waiting
+    private static int serverReadyDeadline = -1;
+
+    // Server side: pre-encoded frames for each owner's current skin, per codec and chunk size (server thread only)
+    private static final Map<UUID, Map<Integer, SkinFrames>> encodedFrames = new HashMap<>();
+
+    // Server side: sync state per connected player (server thread, except feature checks from Netty)
+    private static final Map<UUID, SkinPeer> peers = new ConcurrentHashMap<>();
+
+    // Client side: paced uploads to the server, null while not connected
+    private static volatile SkinSendQueue uploadQueue = null;
+
+    // Client side: our last upload, kept for resending chunks the server reports lost
+    private static volatile UploadRecord lastUpload = null;
+
+    private static class UploadRecord {
+        final byte[] data;
+        final int chunkSize;
+        final long sentAt;
+
+        UploadRecord(byte[] data, int chunkSize) {
+            this.data = data;
+            this.chunkSize = chunkSize;
+            this.sentAt = System.currentTimeMillis();
+        }
+    }
+
+    // Client side: what the server advertised
+    private static volatile SkinHello serverHello = SkinHello.LEGACY;
+
+    // Client side: bundle transfers in flight, by transfer id -> entry count
+    private static final Map<UUID, Integer> bundleTransfers = new ConcurrentHashMap<>();
+
+    // Client side: blobs we asked the server for, and who is waiting to wear them (client thread only)
+    private static final Map<String, PendingBlob> pendingBlobs = new HashMap<>();
+
+    private static class PendingBlob {
+        final Map<UUID, Boolean> owners = new HashMap<>();
+        long requestedAt;
+    }
+
+    public static void setMaxMultiplayerSize(int size) {
+        maxMultiplayerSize = size;
+        NightfallSkin.LOGGER.info("Set max multiplayer skin size to: {}x{}", size, size);
+    }
+
+    /**
+     * Periodic server-side housekeeping, called every server tick
+     */
+    public static void onServerTick(MinecraftServer server) {
+        if (++serverTicks % SWEEP_INTERVAL_TICKS == 0) {
+            serverReassembler.sweep();
+            for (SkinPeer peer : peers.values()) {
+                peer.expireFrames(serverTicks - RESEND_WINDOW_TICKS);
+            }
+        }
+
+        int budget = SkinNetworkConfig.getServerBytesPerTick();
+        for (SkinPeer peer : peers.values()) {
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(peer.uuid);
+            if (player == null) {
+                continue;
+            }
+
+            // Hold announcements back while earlier skins are still waiting to go out,
+            // so the nearest-first order applies to what is actually sent next
+            SkinSendQueue queue = peer.getSendQueue();
+            if (peer.getPendingCount() > 0 && queue.getQueuedBytes() < budget && isReadyForSkins(player, peer)) {
+                long drainStart = System.nanoTime();
+                drainAnnouncements(server, player, peer, budget);
+                SkinMetrics.get().recordDrain(System.nanoTime() - drainStart);
+            }
+
+            // Runs after the tick's gameplay packets were queued, and backs off while the channel is full
+            try {
+                SkinMetrics.get().recordSent(peer.uuid, queue.flush(budget));
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Failed to send skin data to " + player.getName().getString(), e);
+            }
+
+            if (serverTicks % SWEEP_INTERVAL_TICKS == 0 && queue.getQueuedFrames() > 0) {
+                NightfallSkin.LOGGER.debug("Skin send queue for {}: {}", player.getName().getString(), queue);
+            }
+        }
+    }
+
+    private static boolean isReadyForSkins(ServerPlayerEntity player, SkinPeer peer) {
+        if (peer.isReady()) {
+            return true;
+        }
+        if (serverTicks - peer.joinedAtTick < READY_FALLBACK_TICKS
+                || !ServerPlayNetworking.canSend(player, SYNC_SKIN_START)) {
+            return false;
+        }
+        NightfallSkin.LOGGER.debug("{} never signalled ready, delivering skins anyway", player.getName().getString());
+        peer.setReady();
+        return true;
+    }
+
+    /**
+     * Periodic client-side housekeeping, called every client tick
+     */
+    public static void onClientTick(MinecraftClient client) {
+        if (++clientTicks % SWEEP_INTERVAL_TICKS == 0) {
+            clientReassembler.sweep();
+            if (RemoteSkinLoader.getQueuedCount() > 0 || RemoteSkinLoader.getArrivalToVisible().getCount() > 0) {
+                NightfallSkin.LOGGER.debug("Remote skins: {} queued, arrival to visible ms: {}",
+                        RemoteSkinLoader.getQueuedCount(), RemoteSkinLoader.getArrivalToVisible());
+            }
+        }
+
+        if (serverReadyDeadline >= 0 && clientTicks >= serverReadyDeadline) {
+            NightfallSkin.LOGGER.info("Server did not acknowledge skin sync, continuing without it");
+            onServerReady(client);
+        }
+
+        SkinSendQueue queue = uploadQueue;
+        if (queue != null) {
+            try {
+                queue.flush(SkinNetworkConfig.getClientBytesPerTick());
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Failed to send skin data to server", e);
+            }
+        }
+
+        SkinUploadPipeline.Status upload = SkinUploadPipeline.getStatus();
+        if (upload.stage == SkinUploadPipeline.Stage.UPLOADING && getPendingUploadBytes() == 0) {
+            SkinUploadPipeline.setStatus(SkinUploadPipeline.Stage.DONE, "Skin uploaded", upload.uploadBytes);
+        }
+    }
+
+    /**
+     * Client joined a world: say hello, list what we hold and that we are ready to receive skins
+     */
+    public static void onClientJoin(ClientPlayNetworkHandler handler, PacketSender sender) {
+        uploadQueue = new SkinSendQueue(sender, handler.getConnection());
+        sendHello(sender, SkinHello.local(MAX_DOWNLOAD_CHUNK_SIZE, CLIENT_MAX_RESOLUTION));
+        serverReadyDeadline = clientTicks + SERVER_READY_TIMEOUT_TICKS;
+
+        // Listing the cache can take a while on the first join, so it happens on an IO worker.
+        // Ready goes out behind the inventory, and announcements only follow ready, so the
+        // cache index is loaded by the time they are checked against it.
+        Util.getIoWorkerExecutor().execute(() -> {
+            sendInventory(sender);
+            sender.sendPacket(SKIN_READY, new PacketByteBuf(Unpooled.buffer()));
+        });
+    }
+
+    private static void onServerReady(MinecraftClient client) {
+        if (serverReadyDeadline < 0) {
+            return;
+        }
+        serverReadyDeadline = -1;
+        SkinManager.autoApplyLastSkin(client);
+    }
+
+    /**
+     * Player joined: set up their sync state and say hello.
+     * Nothing is delivered until they signal ready.
+     */
+    public static void onPlayerJoin(ServerPlayerEntity player, PacketSender sender) {
+        SkinPeer peer = new SkinPeer(player.getUuid(), serverTicks, new SkinSendQueue(sender, getConnection(player)));
+        peers.put(player.getUuid(), peer);
+        SkinMetrics.get().onPlayerJoin(player.getUuid(), player.getName().getString(), peer.getSendQueue());
+        sendHello(sender, SkinHello.local(MAX_UPLOAD_CHUNK_SIZE, SERVER_MAX_RESOLUTION));
+    }
+
+    /**
+     * Forget a disconnected player's unfinished uploads
+     */
+    public static void onPlayerDisconnect(ServerPlayerEntity player) {
+        serverReassembler.cancelPeer(player.getUuid());
+        SkinMetrics.get().onPlayerDisconnect(player.getUuid());
+        SkinUploadProcessor.forget(player.getUuid());
+        SkinPeer peer = peers.remove(player.getUuid());
+        if (peer != null) {
+            peer.getSendQueue().clear();
+            peer.releaseFrames();
+        }
+        // Viewers drop the skin, and with it their reference to the shared texture
+        sendResetToViewers(player.getUuid());
+    }
+
+    /**
+     * Tell everyone who was told about an owner's skin to drop it
+     */
+    private static void sendResetToViewers(UUID owner) {
+        for (SkinPeer peer : peers.values()) {
+            // Reset only matters to players who were told about the skin
+            boolean knew = peer.knows(owner);
+            peer.forget(owner);
+            if (!knew) continue;
+            try {
+                PacketByteBuf resetBuf = new PacketByteBuf(Unpooled.buffer());
+                resetBuf.writeUuid(owner);
+                peer.getSendQueue().enqueue(RESET_SKIN, resetBuf);
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Failed to send reset", e);
+            }
+        }
+    }
+
+    private static ClientConnection getConnection(ServerPlayerEntity player) {
+        return ((ServerPlayNetworkHandlerAccessor) player.networkHandler).getConnectionAccessor();
+    }
+
+    private static SkinPeer getPeer(ServerPlayerEntity player) {
+        SkinPeer peer = peers.get(player.getUuid());
+        if (peer == null) {
+            peer = new SkinPeer(player.getUuid(), serverTicks,
+                    new SkinSendQueue(ServerPlayNetworking.getSender(player), getConnection(player)));
+            // Late tasks for a player who already left must not resurrect their state
+            if (!player.isDisconnected()) {
+                peers.put(player.getUuid(), peer);
+            }
+        }
+        return peer;
+    }
+
+    /**
+     * A player came into view of another - announce the skin if that viewer hasn't seen it yet
+     */
+    public static void onStartTracking(Entity trackedEntity, ServerPlayerEntity viewer) {
+        if (!(trackedEntity instanceof ServerPlayerEntity owner)) {
+            return;
+        }
+
+        ServerSkinManager.SkinData skinData = ServerSkinManager.getSkinData(owner.getUuid());
+        if (skinData != null) {
+            announceSkin(viewer, owner.getUuid(), skinData);
+        }
+    }
+
+    /**
+     * Forget everything in flight from the server we just left
+     */
+    public static void onClientDisconnect() {
+        SkinSendQueue queue = uploadQueue;
+        uploadQueue = null;
+        if (queue != null) {
+            queue.clear();
+        }
+        SkinUploadPipeline.setStatus(SkinUploadPipeline.Stage.IDLE, "", 0);
+        lastUpload = null;
+        RemoteSkinLoader.clear();
+        SkinManager.clearRemoteSkins();
+        clientReassembler.cancelPeer(SERVER_PEER);
+        bundleTransfers.clear();
+        pendingBlobs.clear();
+        serverHello = SkinHello.LEGACY;
+        serverReadyDeadline = -1;
+    }
+
+    /**
+     * Whether the server we are connected to supports an optional feature
+     */
+    public static boolean serverSupports(int feature) {
+        return serverHello.supports(feature);
+    }
+
+    private static void sendHello(PacketSender sender, SkinHello hello) {
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        hello.write(buf);
+        sender.sendPacket(SKIN_HELLO, buf);
+    }
+
+    private static SkinHello readHello(PacketByteBuf buf) {
+        try {
+            return SkinHello.read(buf);
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.warn("Malformed skin hello, using legacy protocol: {}", e.getMessage());
+            return SkinHello.LEGACY;
+        }
+    }
+
+    private static void sendInventory(PacketSender sender) {
+        try {
+            List<String> hashes = SkinCache.getHashes();
+            if (hashes.size() > MAX_INVENTORY_HASHES) {
+                hashes = hashes.subList(0, MAX_INVENTORY_HASHES);
+            }
+
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+            HashBloomFilter.of(hashes).write(buf);
+            sender.sendPacket(SKIN_INVENTORY, buf);
+            NightfallSkin.LOGGER.debug("Sent skin inventory with {} hashes ({} bytes)", hashes.size(), buf.readableBytes());
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to send skin inventory", e);
         }
+    }
 
-        void addChunk(int index, byte[] data) {
-            chunks.put(index, data);
+    /**
+     * Unpack a finished bundle on the network thread and apply every entry on the client thread
+     */
+    private static void receiveBundle(MinecraftClient client, UUID bundleId, byte[] packed, long arrivedNanos) {
+        List<SkinBundle.Entry> entries;
+        try {
+            entries = SkinBundle.unpack(packed);
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to unpack skin bundle " + bundleId, e);
+            return;
         }
 
-        boolean isComplete() {
-            return chunks.size() == totalChunks;
+        NightfallSkin.LOGGER.info("Unpacked skin bundle: {} skins from {} bytes", entries.size(), packed.length);
+        for (SkinBundle.Entry entry : entries) {
+            String hash = SkinHash.of(entry.data);
+            SkinCache.put(hash, entry.data, entry.codec);
+            client.execute(() -> applyReceivedBlob(entry.owner, hash, entry.data, entry.codec, entry.isSlim, arrivedNanos));
         }
+    }
 
-        byte[] assemble() {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            for (int i = 0; i < totalChunks; i++) {
-                byte[] chunk = chunks.get(i);
-                if (chunk == null) {
-                    throw new RuntimeException("Missing chunk " + i);
+    /**
+     * A blob arrived: everyone still waiting on its hash wears it. Servers that announce hashes
+     * always announce before sending, so with those a blob nobody waits for is dropped -
+     * e.g. one for a player who reset or left in the meantime.
+     */
+    private static void applyReceivedBlob(UUID ownerUuid, String hash, byte[] data, byte codec, boolean isSlim, long arrivedNanos) {
+        try {
+            PendingBlob pending = pendingBlobs.remove(hash);
+            if (pending != null) {
+                for (Map.Entry<UUID, Boolean> owner : pending.owners.entrySet()) {
+                    SkinManager.applyRemoteSkin(owner.getKey(), hash, data, codec, owner.getValue(), arrivedNanos);
                 }
-                baos.write(chunk, 0, chunk.length);
+            } else if (!serverHello.supports(SkinHello.FEATURE_HASH_DEDUP)) {
+                // Older servers stream skins without announcing them first
+                SkinManager.applyRemoteSkin(ownerUuid, hash, data, codec, isSlim, arrivedNanos);
+            } else {
+                NightfallSkin.LOGGER.debug("Dropped skin {} for player {}, nobody is waiting for it", hash, ownerUuid);
+                return;
             }
-            return baos.toByteArray();
+            NightfallSkin.LOGGER.info("Successfully assembled skin for player {}, queued for decoding", ownerUuid);
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to apply skin for player " + ownerUuid, e);
         }
     }
 
-    public static void setMaxMultiplayerSize(int size) {
-        maxMultiplayerSize = size;
-        NightfallSkin.LOGGER.info("Set max multiplayer skin size to: {}x{}", size, size);
+    /**
+     * Wait for a blob on a player's behalf, asking the server for it unless it is already being pushed (client thread)
+     */
+    private static void awaitBlob(PacketSender sender, UUID playerUuid, String hash, boolean isSlim, boolean pushed) {
+        PendingBlob pending = pendingBlobs.computeIfAbsent(hash, h -> new PendingBlob());
+        pending.owners.put(playerUuid, isSlim);
+
+        long now = System.currentTimeMillis();
+        if (pushed) {
+            // Only ask ourselves if the pushed copy never shows up
+            pending.requestedAt = now;
+        } else if (now - pending.requestedAt > REQUEST_RETRY_MS) {
+            pending.requestedAt = now;
+            PacketByteBuf requestBuf = new PacketByteBuf(Unpooled.buffer());
+            requestBuf.writeUuid(playerUuid);
+            requestBuf.writeString(hash);
+            sender.sendPacket(REQUEST_SKIN, requestBuf);
+        }
+    }
+
+    /**
+     * Stop waiting on blobs for a player, dropping requests nobody else waits on (client thread)
+     */
+    private static void forgetPendingOwner(UUID playerUuid) {
+        Iterator<PendingBlob> iterator = pendingBlobs.values().iterator();
+        while (iterator.hasNext()) {
+            PendingBlob pending = iterator.next();
+            pending.owners.remove(playerUuid);
+            if (pending.owners.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public static SkinReassembler getServerReassembler() {
+        return serverReassembler;
+    }
+
+    public static SkinReassembler getClientReassembler() {
+        return clientReassembler;
     }
 
     public static void registerClientReceivers() {
@@ -77,57 +482,154 @@ public class SkinNetworkHandler {
             boolean isSlim = buf.readBoolean();
             int totalChunks = buf.readInt();
             int totalSize = buf.readInt();
+            // Older servers only send PNG in fixed chunks and don't write these
+            byte codec = buf.isReadable() ? buf.readByte() : SkinCodecs.PNG;
+            int chunkSize = buf.isReadable() ? buf.readInt() : SkinHello.LEGACY_CHUNK_SIZE;
 
             NightfallSkin.LOGGER.info("Starting to receive skin for player {} ({} bytes in {} chunks)",
                     playerUuid, totalSize, totalChunks);
 
-            client.execute(() -> {
-                receivingData.put(playerUuid, new ChunkedSkinData(totalChunks, isSlim));
-            });
+            clientReassembler.start(SERVER_PEER, playerUuid, codec, isSlim, totalChunks, chunkSize, totalSize);
         });
 
-        // Receive skin chunk
+        // Receive skin chunk - stays on the network thread
         ClientPlayNetworking.registerGlobalReceiver(SYNC_SKIN_CHUNK, (client, handler, buf, responseSender) -> {
             UUID playerUuid = buf.readUuid();
             int chunkIndex = buf.readInt();
             int chunkSize = buf.readInt();
-            byte[] chunkData = new byte[chunkSize];
-            buf.readBytes(chunkData);
 
-            client.execute(() -> {
-                ChunkedSkinData data = receivingData.get(playerUuid);
-                if (data != null) {
-                    data.addChunk(chunkIndex, chunkData);
-                    NightfallSkin.LOGGER.debug("Received chunk {}/{} for player {}",
-                            chunkIndex + 1, data.totalChunks, playerUuid);
+            clientReassembler.addChunk(playerUuid, chunkIndex, chunkSize, buf);
+
+            if (bundleTransfers.containsKey(playerUuid)) {
+                NightfallSkin.LOGGER.debug("Skin bundle {}: {}/{} frames", playerUuid,
+                        clientReassembler.getReceivedChunks(playerUuid), clientReassembler.getTotalChunks(playerUuid));
+            }
+        });
+
+        // Complete skin reception - assemble here, apply on the client thread
+        ClientPlayNetworking.registerGlobalReceiver(SYNC_SKIN_END, (client, handler, buf, responseSender) -> {
+            UUID playerUuid = buf.readUuid();
+
+            // Missing or corrupt chunks: ask for just those and wait for another end frame
+            if (serverHello.supports(SkinHello.FEATURE_RESEND)) {
+                int[] missing = clientReassembler.requestResend(playerUuid, MAX_RESEND_REQUESTS);
+                if (missing != null) {
+                    sendNack(responseSender, playerUuid, missing);
+                    return;
                 }
+            }
+
+            SkinReassembler.Payload payload = clientReassembler.finish(playerUuid);
+            long arrivedNanos = System.nanoTime();
+            Integer bundleEntries = bundleTransfers.remove(playerUuid);
+            if (payload == null) {
+                return;
+            }
+
+            if (bundleEntries != null) {
+                receiveBundle(client, playerUuid, payload.data, arrivedNanos);
+                return;
+            }
+
+            String hash = SkinHash.of(payload.data);
+            SkinCache.put(hash, payload.data, payload.codec);
+            client.execute(() -> applyReceivedBlob(playerUuid, hash, payload.data, payload.codec, payload.isSlim, arrivedNanos));
+        });
+
+        // Server lost chunks of our upload
+        ClientPlayNetworking.registerGlobalReceiver(SKIN_NACK, (client, handler, buf, responseSender) -> {
+            buf.readUuid();
+            int[] indices = readNack(buf);
+            if (indices != null) {
+                // Behind anything already being prepared, like every other upload step
+                SkinUploadPipeline.submit(() -> resendUploadChunks(indices));
+            }
+        });
+
+        // Several skins in one compressed stream - reassembled like a skin, unpacked at the end
+        ClientPlayNetworking.registerGlobalReceiver(SKIN_BUNDLE, (client, handler, buf, responseSender) -> {
+            UUID bundleId = buf.readUuid();
+            int entryCount = buf.readVarInt();
+            int totalChunks = buf.readInt();
+            int totalSize = buf.readInt();
+            int chunkSize = buf.readInt();
+
+            NightfallSkin.LOGGER.info("Receiving skin bundle with {} skins ({} bytes in {} frames)",
+                    entryCount, totalSize, totalChunks);
+
+            // The codec of a bundle transfer is unused, entries carry their own
+            if (clientReassembler.start(SERVER_PEER, bundleId, SkinCodecs.PNG, false, totalChunks, chunkSize, totalSize)) {
+                bundleTransfers.put(bundleId, entryCount);
+            }
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(RESET_SKIN, (client, handler, buf, responseSender) -> {
+            UUID playerUuid = buf.readUuid();
+            NightfallSkin.LOGGER.info("Received skin reset for player {}", playerUuid);
+            client.execute(() -> {
+                SkinManager.removeRemoteSkin(client, playerUuid);
+                // A blob we asked for on their behalf may still arrive; it must not put the skin back
+                forgetPendingOwner(playerUuid);
             });
         });
 
-        // Complete skin reception
-        ClientPlayNetworking.registerGlobalReceiver(SYNC_SKIN_END, (client, handler, buf, responseSender) -> {
+        // Skin announcement - only fetch the image if we don't already hold it
+        ClientPlayNetworking.registerGlobalReceiver(SKIN_HASH, (client, handler, buf, responseSender) -> {
             UUID playerUuid = buf.readUuid();
+            String hash = buf.readString();
+            boolean isSlim = buf.readBoolean();
+            // Set when the server already knows we lack the blob and streams it right behind this
+            boolean pushed = buf.isReadable() && buf.readBoolean();
+            long arrivedNanos = System.nanoTime();
 
             client.execute(() -> {
-                ChunkedSkinData data = receivingData.remove(playerUuid);
-                if (data != null && data.isComplete()) {
-                    try {
-                        byte[] fullData = data.assemble();
-                        SkinManager.applyRemoteSkin(client, playerUuid, fullData, data.isSlim);
-                        NightfallSkin.LOGGER.info("Successfully assembled and applied skin for player {}", playerUuid);
-                    } catch (Exception e) {
-                        NightfallSkin.LOGGER.error("Failed to assemble skin for player " + playerUuid, e);
-                    }
-                } else {
-                    NightfallSkin.LOGGER.error("Failed to receive complete skin for player {}", playerUuid);
+                SkinManager.SkinData current = SkinManager.getSkinData(playerUuid);
+                if (current != null && hash.equals(current.hash) && current.isSlim == isSlim) {
+                    return;
                 }
+
+                SkinManager.SkinData known = SkinManager.findSkinByHash(hash);
+                if (known != null) {
+                    NightfallSkin.LOGGER.debug("Reusing held skin {} for player {}", hash, playerUuid);
+                    SkinManager.applyRemoteSkin(playerUuid, hash, known.imageData, known.codec, isSlim, arrivedNanos);
+                    return;
+                }
+
+                if (!pushed && SkinCache.contains(hash)) {
+                    // Read and decoded off-thread; an unreadable entry falls back to asking the server
+                    NightfallSkin.LOGGER.debug("Loading skin {} for player {} from disk cache", hash, playerUuid);
+                    SkinManager.applyCachedSkin(playerUuid, hash, isSlim, arrivedNanos,
+                            (owner, slim) -> awaitBlob(responseSender, owner, hash, slim, false));
+                    return;
+                }
+
+                awaitBlob(responseSender, playerUuid, hash, isSlim, pushed);
             });
         });
 
-        ClientPlayNetworking.registerGlobalReceiver(RESET_SKIN, (client, handler, buf, responseSender) -> {
+        // Another player switched model - keep their texture
+        ClientPlayNetworking.registerGlobalReceiver(MODEL_UPDATE, (client, handler, buf, responseSender) -> {
             UUID playerUuid = buf.readUuid();
-            NightfallSkin.LOGGER.info("Received skin reset for player {}", playerUuid);
-            client.execute(() -> {});
+            boolean isSlim = buf.readBoolean();
+
+            client.execute(() -> {
+                SkinManager.updateRemoteModel(playerUuid, isSlim);
+
+                // Still waiting for their image? Wear it with the new model when it arrives
+                for (PendingBlob pending : pendingBlobs.values()) {
+                    pending.owners.replace(playerUuid, isSlim);
+                }
+            });
+        });
+
+        ClientPlayNetworking.registerGlobalReceiver(SKIN_HELLO, (client, handler, buf, responseSender) -> {
+            serverHello = readHello(buf);
+            NightfallSkin.LOGGER.info("Server skin protocol: {}", serverHello);
+        });
+
+        // Server is set up for us - codecs are known by now, so our own skin can go up
+        ClientPlayNetworking.registerGlobalReceiver(SKIN_READY, (client, handler, buf, responseSender) -> {
+            client.execute(() -> onServerReady(client));
         });
     }
 
@@ -135,225 +637,595 @@ public class SkinNetworkHandler {
         // Receive start from client
         ServerPlayNetworking.registerGlobalReceiver(SYNC_SKIN_START, (server, player, handler, buf, responseSender) -> {
             UUID senderUuid = player.getUuid();
+            SkinMetrics.get().recordReceived(senderUuid, buf.readableBytes());
             boolean isSlim = buf.readBoolean();
             int totalChunks = buf.readInt();
             int totalSize = buf.readInt();
+            // Older clients only upload PNG in fixed chunks and don't write these
+            byte codec = buf.isReadable() ? buf.readByte() : SkinCodecs.PNG;
+            int chunkSize = buf.isReadable() ? buf.readInt() : SkinHello.LEGACY_CHUNK_SIZE;
 
             NightfallSkin.LOGGER.info("Receiving skin from {} ({} bytes in {} chunks)",
                     player.getName().getString(), totalSize, totalChunks);
 
-            server.execute(() -> {
-                receivingData.put(senderUuid, new ChunkedSkinData(totalChunks, isSlim));
-            });
+            serverReassembler.start(senderUuid, senderUuid, codec, isSlim, totalChunks, chunkSize, totalSize);
         });
 
-        // Receive chunk from client
+        // Receive chunk from client - stays on the network thread
         ServerPlayNetworking.registerGlobalReceiver(SYNC_SKIN_CHUNK, (server, player, handler, buf, responseSender) -> {
             UUID senderUuid = player.getUuid();
+            SkinMetrics.get().recordReceived(senderUuid, buf.readableBytes());
             int chunkIndex = buf.readInt();
             int chunkSize = buf.readInt();
-            byte[] chunkData = new byte[chunkSize];
-            buf.readBytes(chunkData);
 
-            server.execute(() -> {
-                ChunkedSkinData data = receivingData.get(senderUuid);
-                if (data != null) {
-                    data.addChunk(chunkIndex, chunkData);
-                }
-            });
+            serverReassembler.addChunk(senderUuid, chunkIndex, chunkSize, buf);
         });
 
-        // Receive end from client - broadcast to all players
+        // Receive end from client - assemble here, store and broadcast on the server thread
         ServerPlayNetworking.registerGlobalReceiver(SYNC_SKIN_END, (server, player, handler, buf, responseSender) -> {
             UUID senderUuid = player.getUuid();
 
-            server.execute(() -> {
-                ChunkedSkinData data = receivingData.remove(senderUuid);
-                if (data != null && data.isComplete()) {
-                    try {
-                        byte[] fullData = data.assemble();
-
-                        // Store on server for new players joining later
-                        ServerSkinManager.storeSkin(senderUuid, fullData, data.isSlim);
+            // Missing or corrupt chunks: ask for just those and wait for another end frame
+            SkinPeer peer = peers.get(senderUuid);
+            if (peer != null && peer.getHello().supports(SkinHello.FEATURE_RESEND)) {
+                int[] missing = serverReassembler.requestResend(senderUuid, MAX_RESEND_REQUESTS);
+                if (missing != null) {
+                    sendNack(responseSender, senderUuid, missing);
+                    return;
+                }
+            }
 
-                        // Broadcast to all other players
-                        for (ServerPlayerEntity targetPlayer : server.getPlayerManager().getPlayerList()) {
-                            if (targetPlayer.getUuid().equals(senderUuid)) {
-                                continue;
-                            }
+            SkinReassembler.Payload payload = serverReassembler.finish(senderUuid);
+            if (payload == null) {
+                return;
+            }
+            SkinMetrics.get().recordReassembly(payload.elapsedMs);
 
-                            sendChunkedSkinToPlayer(targetPlayer, senderUuid, fullData, data.isSlim);
-                        }
+            // Decoded, checked and re-encoded once on a worker; only the canonical bytes reach the server thread
+            SkinUploadProcessor.submit(senderUuid, payload, SERVER_MAX_RESOLUTION, server, upload -> {
+                long broadcastStart = System.nanoTime();
+                try {
+                    // Store on server for new players joining later
+                    ServerSkinManager.SkinData skinData = ServerSkinManager.storeSkin(senderUuid, upload.hash, upload.data, upload.codec, upload.isSlim);
+                    if (upload.pngVariant != null) {
+                        SkinBlobStore.addVariant(SkinBlobStore.get(skinData.hash), SkinCodecs.PNG, upload.pngVariant);
+                    }
 
-                        NightfallSkin.LOGGER.info("Broadcasted skin from {} to {} players",
-                                player.getName().getString(), server.getPlayerManager().getPlayerList().size() - 1);
-                    } catch (Exception e) {
-                        NightfallSkin.LOGGER.error("Failed to broadcast skin", e);
+                    // Announce the hash to players who can currently see the sender; everyone
+                    // else hears about it when they start tracking them
+                    Collection<ServerPlayerEntity> viewers = PlayerLookup.tracking(player);
+                    for (ServerPlayerEntity targetPlayer : viewers) {
+                        announceSkin(targetPlayer, senderUuid, skinData);
                     }
+
+                    NightfallSkin.LOGGER.info("Announced skin from {} to {} nearby players",
+                            player.getName().getString(), viewers.size());
+                } catch (Exception e) {
+                    NightfallSkin.LOGGER.error("Failed to broadcast skin", e);
                 }
+                SkinMetrics.get().recordBroadcast(System.nanoTime() - broadcastStart);
             });
         });
 
         ServerPlayNetworking.registerGlobalReceiver(RESET_SKIN, (server, player, handler, buf, responseSender) -> {
             UUID senderUuid = player.getUuid();
+            // An upload still being validated must not land after the reset
+            SkinUploadProcessor.cancel(senderUuid);
             server.execute(() -> {
                 // Remove from server storage
                 ServerSkinManager.removeSkin(senderUuid);
+                releaseEncodedFrames(senderUuid);
+
+                sendResetToViewers(senderUuid);
+            });
+        });
+
+        // Client lost chunks of a skin or bundle we sent - resend those from the kept frames
+        ServerPlayNetworking.registerGlobalReceiver(SKIN_NACK, (server, player, handler, buf, responseSender) -> {
+            UUID key = buf.readUuid();
+            int[] indices = readNack(buf);
+            if (indices == null) {
+                return;
+            }
+
+            server.execute(() -> {
+                SkinPeer peer = peers.get(player.getUuid());
+                if (peer == null) {
+                    return;
+                }
+
+                SkinFrames frames = peer.getRecentFrames(key);
+                if (frames != null) {
+                    frames.queueResend(peer.getSendQueue(), indices);
+                    NightfallSkin.LOGGER.debug("Resending {} chunks of {} to {}", indices.length, key, player.getName().getString());
+                    return;
+                }
+
+                // Frames are gone; a skin can still be streamed again in full, a bundle cannot
+                ServerSkinManager.SkinData skinData = ServerSkinManager.getSkinData(key);
+                SkinBlobStore.Blob blob = skinData != null ? SkinBlobStore.get(skinData.hash) : null;
+                if (blob != null) {
+                    sendChunkedSkinToPlayer(player, key, blob, skinData.isSlim);
+                } else {
+                    NightfallSkin.LOGGER.debug("{} asked for chunks of {} we no longer hold", player.getName().getString(), key);
+                }
+            });
+        });
+
+        // Client is missing a blob it was told about - stream it
+        ServerPlayNetworking.registerGlobalReceiver(REQUEST_SKIN, (server, player, handler, buf, responseSender) -> {
+            UUID ownerUuid = buf.readUuid();
+            String hash = buf.readString();
+
+            server.execute(() -> {
+                SkinBlobStore.Blob blob = SkinBlobStore.get(hash);
+                if (blob == null) {
+                    NightfallSkin.LOGGER.debug("{} requested unknown skin {}", player.getName().getString(), hash);
+                    return;
+                }
+
+                ServerSkinManager.SkinData ownerSkin = ServerSkinManager.getSkinData(ownerUuid);
+                boolean isSlim = ownerSkin != null && ownerSkin.isSlim;
+                sendChunkedSkinToPlayer(player, ownerUuid, blob, isSlim);
+            });
+        });
+
+        // Model-only change from a client - flip the flag and relay it
+        ServerPlayNetworking.registerGlobalReceiver(MODEL_UPDATE, (server, player, handler, buf, responseSender) -> {
+            UUID senderUuid = player.getUuid();
+            boolean isSlim = buf.readBoolean();
+
+            server.execute(() -> {
+                ServerSkinManager.SkinData updated = ServerSkinManager.updateModel(senderUuid, isSlim);
+                if (updated == null) {
+                    return;
+                }
 
-                // Broadcast reset to all other players
+                // Players who never saw the skin get the new model with the announcement later
                 for (ServerPlayerEntity targetPlayer : server.getPlayerManager().getPlayerList()) {
-                    if (targetPlayer.getUuid().equals(senderUuid)) continue;
+                    SkinPeer peer = peers.get(targetPlayer.getUuid());
+                    if (peer == null) continue;
+                    if (peer.hasPending(senderUuid)) {
+                        // Not sent yet - the queued announcement just carries the new model
+                        peer.queueAnnouncement(senderUuid, updated);
+                        continue;
+                    }
+                    if (!peer.knows(senderUuid)) continue;
+                    if (!peer.getHello().supports(SkinHello.FEATURE_MODEL_UPDATE)) {
+                        // Older clients only learn the model from a full resend
+                        peer.queueAnnouncement(senderUuid, updated);
+                        continue;
+                    }
+                    peer.markSent(senderUuid, updated);
                     try {
-                        PacketByteBuf resetBuf = new PacketByteBuf(Unpooled.buffer());
-                        resetBuf.writeUuid(senderUuid);
-                        ServerPlayNetworking.send(targetPlayer, RESET_SKIN, resetBuf);
+                        PacketByteBuf modelBuf = new PacketByteBuf(Unpooled.buffer());
+                        modelBuf.writeUuid(senderUuid);
+                        modelBuf.writeBoolean(isSlim);
+                        peer.getSendQueue().enqueue(MODEL_UPDATE, modelBuf);
                     } catch (Exception e) {
-                        NightfallSkin.LOGGER.error("Failed to send reset", e);
+                        NightfallSkin.LOGGER.error("Failed to send model update", e);
                     }
                 }
             });
         });
+
+        ServerPlayNetworking.registerGlobalReceiver(SKIN_HELLO, (server, player, handler, buf, responseSender) -> {
+            SkinHello hello = readHello(buf);
+            NightfallSkin.LOGGER.info("{} skin protocol: {}", player.getName().getString(), hello);
+
+            server.execute(() -> getPeer(player).setHello(hello));
+        });
+
+        // What the client already holds on disk; anything definitely missing is pushed unasked
+        ServerPlayNetworking.registerGlobalReceiver(SKIN_INVENTORY, (server, player, handler, buf, responseSender) -> {
+            HashBloomFilter inventory = HashBloomFilter.read(buf);
+            if (inventory == null) {
+                return;
+            }
+            server.execute(() -> getPeer(player).setInventory(inventory));
+        });
+
+        // Client's skin channels are up - start the tick drain and acknowledge
+        ServerPlayNetworking.registerGlobalReceiver(SKIN_READY, (server, player, handler, buf, responseSender) -> {
+            server.execute(() -> {
+                if (player.isDisconnected()) {
+                    return;
+                }
+                getPeer(player).setReady();
+                responseSender.sendPacket(SKIN_READY, new PacketByteBuf(Unpooled.buffer()));
+                NightfallSkin.LOGGER.debug("{} is ready for skin sync", player.getName().getString());
+            });
+        });
     }
 
+    /**
+     * Upload our skin. Decoding, downscaling and encoding happen on the upload worker,
+     * never on the render thread; progress is published through {@link SkinUploadPipeline#getStatus()}.
+     */
     public static void sendSkinData(byte[] imageData, boolean isSlim) {
-        try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+        SkinHello server = serverHello;
+        int maxSize = Math.min(maxMultiplayerSize, server.maxResolution);
+        byte codecId = SkinCodecs.choose(server.codecs);
+        int chunkSize = Math.min(UPLOAD_CHUNK_SIZE, server.maxChunkSize);
 
-            // Always downscale to max size first
-            if (image.getWidth() > maxMultiplayerSize || image.getHeight() > maxMultiplayerSize) {
-                NightfallSkin.LOGGER.info("Downscaling skin from {}x{} to {}x{}",
-                        image.getWidth(), image.getHeight(), maxMultiplayerSize, maxMultiplayerSize);
-                image = downscaleImage(image, maxMultiplayerSize, maxMultiplayerSize);
+        SkinUploadPipeline.setStatus(SkinUploadPipeline.Stage.PREPARING, "Preparing skin...", 0);
+        SkinUploadPipeline.submit(() -> {
+            BufferedImage image;
+            try {
+                image = ImageIO.read(new ByteArrayInputStream(imageData));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read skin: " + e.getMessage(), e);
+            }
+            if (image == null) {
+                throw new IllegalStateException("Failed to read skin");
             }
 
-            // Convert to PNG
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "PNG", baos);
-            byte[] pngData = baos.toByteArray();
-
-            // If still too large, downscale more aggressively
-            while (pngData.length > 100000 && image.getWidth() > 64) {
-                int newSize = image.getWidth() / 2;
-                NightfallSkin.LOGGER.warn("Skin still too large ({} bytes), downscaling to {}x{}",
-                        pngData.length, newSize, newSize);
-                image = downscaleImage(image, newSize, newSize);
-                baos.reset();
-                ImageIO.write(image, "PNG", baos);
-                pngData = baos.toByteArray();
+            SkinCodec codec = SkinCodecs.get(codecId);
+            SkinUploadPipeline.Prepared prepared;
+            try {
+                prepared = SkinUploadPipeline.prepare(image, maxSize, codec);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to encode skin: " + e.getMessage(), e);
             }
 
-            NightfallSkin.LOGGER.info("Final skin size: {}x{}, {} bytes",
-                    image.getWidth(), image.getHeight(), pngData.length);
+            NightfallSkin.LOGGER.info("Final skin size: {}x{}, {} bytes ({})",
+                    prepared.size, prepared.size, prepared.data.length, codec.getName());
 
-            sendChunkedData(pngData, isSlim);
+            sendChunkedData(prepared.data, codecId, isSlim, chunkSize);
+            SkinUploadPipeline.setStatus(SkinUploadPipeline.Stage.UPLOADING,
+                    "Uploading " + prepared.size + "x" + prepared.size + " skin...", getUploadQueue().getQueuedBytes());
+        });
+    }
 
-        } catch (Exception e) {
-            NightfallSkin.LOGGER.error("Failed to send skin data", e);
-            throw new RuntimeException("Failed to send skin: " + e.getMessage());
-        }
+    /**
+     * Skin bytes still waiting in the upload queue
+     */
+    public static long getPendingUploadBytes() {
+        SkinSendQueue queue = uploadQueue;
+        return queue != null ? queue.getQueuedBytes() : 0;
     }
 
-    private static void sendChunkedData(byte[] data, boolean isSlim) {
-        int totalChunks = (int) Math.ceil((double) data.length / CHUNK_SIZE);
+    private static void sendChunkedData(byte[] data, byte codec, boolean isSlim, int chunkSize) {
+        int totalChunks = (int) Math.ceil((double) data.length / chunkSize);
 
         // Send start packet
         PacketByteBuf startBuf = new PacketByteBuf(Unpooled.buffer());
         startBuf.writeBoolean(isSlim);
         startBuf.writeInt(totalChunks);
         startBuf.writeInt(data.length);
-        ClientPlayNetworking.send(SYNC_SKIN_START, startBuf);
+        startBuf.writeByte(codec);
+        startBuf.writeInt(chunkSize);
+        SkinSendQueue queue = getUploadQueue();
+        queue.enqueue(SYNC_SKIN_START, startBuf);
 
         // Send chunks
         for (int i = 0; i < totalChunks; i++) {
-            int offset = i * CHUNK_SIZE;
-            int chunkSize = Math.min(CHUNK_SIZE, data.length - offset);
-
-            PacketByteBuf chunkBuf = new PacketByteBuf(Unpooled.buffer());
-            chunkBuf.writeInt(i);
-            chunkBuf.writeInt(chunkSize);
-            chunkBuf.writeBytes(data, offset, chunkSize);
-            ClientPlayNetworking.send(SYNC_SKIN_CHUNK, chunkBuf);
+            queue.enqueue(SYNC_SKIN_CHUNK, uploadChunk(data, i, chunkSize));
         }
 
         // Send end packet
         PacketByteBuf endBuf = new PacketByteBuf(Unpooled.buffer());
-        ClientPlayNetworking.send(SYNC_SKIN_END, endBuf);
+        queue.enqueue(SYNC_SKIN_END, endBuf);
+        lastUpload = new UploadRecord(data, chunkSize);
+
+        NightfallSkin.LOGGER.info("Queued {} chunks ({} bytes total)", totalChunks, data.length);
+    }
+
+    private static PacketByteBuf uploadChunk(byte[] data, int index, int chunkSize) {
+        int offset = index * chunkSize;
+        int size = Math.min(chunkSize, data.length - offset);
 
-        NightfallSkin.LOGGER.info("Sent {} chunks ({} bytes total)", totalChunks, data.length);
+        PacketByteBuf chunkBuf = new PacketByteBuf(Unpooled.buffer());
+        chunkBuf.writeInt(index);
+        chunkBuf.writeInt(size);
+        chunkBuf.writeBytes(data, offset, size);
+        // Trailing checksum; older servers stop reading after the data
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, size);
+        chunkBuf.writeInt((int) crc.getValue());
+        return chunkBuf;
     }
 
-    private static void sendChunkedSkinToPlayer(ServerPlayerEntity player, UUID skinOwnerUuid, byte[] data, boolean isSlim) {
+    /**
+     * The server lost some chunks of our upload - send just those again, then the end frame
+     */
+    private static void resendUploadChunks(int[] indices) {
+        UploadRecord upload = lastUpload;
+        if (upload == null || System.currentTimeMillis() - upload.sentAt > RESEND_WINDOW_MS) {
+            NightfallSkin.LOGGER.warn("Server asked for {} skin chunks we no longer hold", indices.length);
+            return;
+        }
+
+        int totalChunks = (upload.data.length + upload.chunkSize - 1) / upload.chunkSize;
+        SkinSendQueue queue = getUploadQueue();
+        for (int index : indices) {
+            if (index >= 0 && index < totalChunks) {
+                queue.enqueue(SYNC_SKIN_CHUNK, uploadChunk(upload.data, index, upload.chunkSize));
+            }
+        }
+        queue.enqueue(SYNC_SKIN_END, new PacketByteBuf(Unpooled.buffer()));
+        NightfallSkin.LOGGER.info("Resending {} skin chunks", indices.length);
+    }
+
+    private static void sendNack(PacketSender sender, UUID key, int[] missing) {
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeUuid(key);
+        buf.writeVarInt(missing.length);
+        for (int index : missing) {
+            buf.writeVarInt(index);
+        }
+        sender.sendPacket(SKIN_NACK, buf);
+    }
+
+    /**
+     * Read a NACK's chunk indices, or null if the count is more than the packet can hold
+     */
+    private static int[] readNack(PacketByteBuf buf) {
+        int count = buf.readVarInt();
+        // Every index takes at least one byte
+        if (count < 0 || count > buf.readableBytes()) {
+            return null;
+        }
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = buf.readVarInt();
+        }
+        return indices;
+    }
+
+    /**
+     * Everything skin-related the client sends after joining goes through this queue, so it stays in order
+     */
+    private static SkinSendQueue getUploadQueue() {
+        SkinSendQueue queue = uploadQueue;
+        if (queue == null) {
+            throw new IllegalStateException("Not connected to a server");
+        }
+        return queue;
+    }
+
+    private static void sendChunkedSkinToPlayer(ServerPlayerEntity player, UUID skinOwnerUuid, SkinBlobStore.Blob blob, boolean isSlim) {
+        // Nothing would ever flush the queue of a player who already left
+        if (player.isDisconnected()) {
+            return;
+        }
         try {
-            int totalChunks = (int) Math.ceil((double) data.length / CHUNK_SIZE);
-
-            // Send start
-            PacketByteBuf startBuf = new PacketByteBuf(Unpooled.buffer());
-            startBuf.writeUuid(skinOwnerUuid);
-            startBuf.writeBoolean(isSlim);
-            startBuf.writeInt(totalChunks);
-            startBuf.writeInt(data.length);
-            ServerPlayNetworking.send(player, SYNC_SKIN_START, startBuf);
-
-            // Send chunks
-            for (int i = 0; i < totalChunks; i++) {
-                int offset = i * CHUNK_SIZE;
-                int chunkSize = Math.min(CHUNK_SIZE, data.length - offset);
-
-                PacketByteBuf chunkBuf = new PacketByteBuf(Unpooled.buffer());
-                chunkBuf.writeUuid(skinOwnerUuid);
-                chunkBuf.writeInt(i);
-                chunkBuf.writeInt(chunkSize);
-                chunkBuf.writeBytes(data, offset, chunkSize);
-                ServerPlayNetworking.send(player, SYNC_SKIN_CHUNK, chunkBuf);
-            }
-
-            // Send end
-            PacketByteBuf endBuf = new PacketByteBuf(Unpooled.buffer());
-            endBuf.writeUuid(skinOwnerUuid);
-            ServerPlayNetworking.send(player, SYNC_SKIN_END, endBuf);
-
-            NightfallSkin.LOGGER.debug("Sent skin {} to {} in {} chunks", skinOwnerUuid, player.getName().getString(), totalChunks);
+            SkinPeer peer = getPeer(player);
+            SkinHello hello = peer.getHello();
+            byte codec = chooseCodec(hello, blob);
+            int chunkSize = Math.min(DOWNLOAD_CHUNK_SIZE, hello.maxChunkSize);
+            byte[] data = blob.getEncoded(codec);
+            if (data == null) {
+                return;
+            }
+
+            ServerSkinManager.SkinData current = ServerSkinManager.getSkinData(skinOwnerUuid);
+            if (current != null && current.hash.equals(blob.hash) && current.isSlim == isSlim) {
+                queueFrames(peer, getEncodedFrames(skinOwnerUuid, current, codec, chunkSize, data));
+            } else {
+                // Stale request for an image the owner no longer wears - encode for this send only
+                SkinFrames frames = new SkinFrames(skinOwnerUuid, blob.hash, data, codec, isSlim, chunkSize);
+                queueFrames(peer, frames);
+                frames.release();
+            }
+
+            NightfallSkin.LOGGER.debug("Queued skin {} for {}", skinOwnerUuid, player.getName().getString());
         } catch (Exception e) {
             NightfallSkin.LOGGER.error("Failed to send chunked skin", e);
         }
     }
 
-    private static BufferedImage downscaleImage(BufferedImage original, int targetWidth, int targetHeight) {
-        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D graphics = resized.createGraphics();
-        graphics.setRenderingHint(java.awt.RenderingHints.KEY_INTERPOLATION,
-                java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        graphics.setRenderingHint(java.awt.RenderingHints.KEY_RENDERING,
-                java.awt.RenderingHints.VALUE_RENDER_QUALITY);
-        graphics.setRenderingHint(java.awt.RenderingHints.KEY_ANTIALIASING,
-                java.awt.RenderingHints.VALUE_ANTIALIAS_ON);
-        graphics.drawImage(original, 0, 0, targetWidth, targetHeight, null);
-        graphics.dispose();
-        return resized;
+    /**
+     * Queue frames to a peer, keeping them for a while if it can ask for lost chunks
+     */
+    private static void queueFrames(SkinPeer peer, SkinFrames frames) {
+        frames.queueTo(peer.getSendQueue());
+        if (peer.getHello().supports(SkinHello.FEATURE_RESEND)) {
+            peer.rememberFrames(frames.ownerUuid, frames, serverTicks);
+        }
     }
 
-    public static void sendSkinReset() {
-        try {
-            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
-            ClientPlayNetworking.send(RESET_SKIN, buf);
-        } catch (Exception e) {
-            NightfallSkin.LOGGER.error("Failed to send skin reset", e);
+    /**
+     * Send the blob as uploaded when the peer can decode it, otherwise fall back to PNG
+     */
+    private static byte chooseCodec(SkinHello hello, SkinBlobStore.Blob blob) {
+        return hello.codecs.contains(blob.codec) ? blob.codec : SkinCodecs.PNG;
+    }
+
+    /**
+     * Frames for an owner's current skin in one codec and chunk size, built once and reused for every recipient
+     */
+    private static SkinFrames getEncodedFrames(UUID skinOwnerUuid, ServerSkinManager.SkinData skinData, byte codec, int chunkSize, byte[] data) {
+        Map<Integer, SkinFrames> variants = encodedFrames.get(skinOwnerUuid);
+        if (variants != null) {
+            SkinFrames any = variants.values().stream().findFirst().orElse(null);
+            if (any != null && (!any.hash.equals(skinData.hash) || any.isSlim != skinData.isSlim)) {
+                // Owner changed skin or model since these were built
+                releaseEncodedFrames(skinOwnerUuid);
+                variants = null;
+            }
+        }
+        if (variants == null) {
+            variants = new HashMap<>();
+            encodedFrames.put(skinOwnerUuid, variants);
+        }
+
+        int key = (codec << 24) | chunkSize;
+        SkinFrames frames = variants.get(key);
+        if (frames == null) {
+            frames = new SkinFrames(skinOwnerUuid, skinData.hash, data, codec, skinData.isSlim, chunkSize);
+            variants.put(key, frames);
+        }
+        return frames;
+    }
+
+    private static void releaseEncodedFrames(UUID skinOwnerUuid) {
+        Map<Integer, SkinFrames> variants = encodedFrames.remove(skinOwnerUuid);
+        if (variants != null) {
+            for (SkinFrames frames : variants.values()) {
+                frames.release();
+            }
+        }
+    }
+
+    /**
+     * Queue an owner's skin for a player; it goes out with the next tick drain once they are ready
+     */
+    private static void announceSkin(ServerPlayerEntity player, UUID skinOwnerUuid, ServerSkinManager.SkinData skinData) {
+        getPeer(player).queueAnnouncement(skinOwnerUuid, skinData);
+    }
+
+    /**
+     * Send queued announcements nearest owner first, until this tick's byte budget is spent.
+     * The order is recomputed every tick, so it follows players as they move.
+     */
+    private static void drainAnnouncements(MinecraftServer server, ServerPlayerEntity player, SkinPeer peer, int budget) {
+        // Blobs pushed in this drain are packed into bundles when the client supports them
+        List<SkinBundle.Entry> bundle = peer.getHello().supports(SkinHello.FEATURE_BULK) ? new ArrayList<>() : null;
+
+        List<UUID> owners = peer.getPendingOwners();
+        Map<UUID, Double> priority = new HashMap<>();
+        for (UUID owner : owners) {
+            priority.put(owner, distancePriority(player, server.getPlayerManager().getPlayer(owner)));
+        }
+        owners.sort(Comparator.comparingDouble(priority::get));
+
+        for (UUID owner : owners) {
+            // Always make progress, even when one skin alone is over the budget
+            if (budget <= 0) {
+                break;
+            }
+            ServerSkinManager.SkinData skinData = peer.takeAnnouncement(owner);
+            if (skinData != null) {
+                budget -= sendAnnouncement(player, peer, owner, skinData, bundle);
+            }
+        }
+
+        if (bundle != null && !bundle.isEmpty()) {
+            sendBundles(player, peer, bundle);
         }
     }
 
-    public static void sendAllSkinsToPlayer(ServerPlayerEntity newPlayer, java.util.Collection<ServerPlayerEntity> allPlayers) {
-        for (ServerPlayerEntity player : allPlayers) {
-            if (player.getUuid().equals(newPlayer.getUuid())) continue;
+    /**
+     * Send pushed skins as bundles capped at {@link SkinBundle#MAX_PACKED_INPUT}; a lone skin goes as a normal stream
+     */
+    private static void sendBundles(ServerPlayerEntity player, SkinPeer peer, List<SkinBundle.Entry> entries) {
+        // Bundles are the big transfers, so they take the largest chunk the client reassembles
+        int chunkSize = Math.min(MAX_DOWNLOAD_CHUNK_SIZE, peer.getHello().maxChunkSize);
+        List<SkinBundle.Entry> batch = new ArrayList<>();
+        int batchBytes = 0;
 
-            // Use ServerSkinManager instead of SkinManager
-            ServerSkinManager.SkinData skinData = ServerSkinManager.getSkinData(player.getUuid());
-            if (skinData != null && skinData.imageData != null) {
+        for (int i = 0; i <= entries.size(); i++) {
+            SkinBundle.Entry entry = i < entries.size() ? entries.get(i) : null;
+            if (!batch.isEmpty() && (entry == null || batchBytes + entry.data.length > SkinBundle.MAX_PACKED_INPUT)) {
                 try {
-                    sendChunkedSkinToPlayer(newPlayer, player.getUuid(), skinData.imageData, skinData.isSlim);
+                    if (batch.size() == 1) {
+                        SkinBundle.Entry only = batch.get(0);
+                        SkinFrames frames = new SkinFrames(only.owner, null, only.data, only.codec, only.isSlim,
+                                Math.min(DOWNLOAD_CHUNK_SIZE, chunkSize));
+                        queueFrames(peer, frames);
+                        frames.release();
+                    } else {
+                        byte[] packed = SkinBundle.pack(batch);
+                        SkinFrames frames = SkinFrames.bundle(UUID.randomUUID(), packed, batch.size(), chunkSize);
+                        queueFrames(peer, frames);
+                        frames.release();
+                        NightfallSkin.LOGGER.debug("Sent bundle of {} skins to {} ({} -> {} bytes, {} frames)",
+                                batch.size(), player.getName().getString(), batchBytes, packed.length, frames.getChunkCount());
+                    }
                 } catch (Exception e) {
-                    NightfallSkin.LOGGER.error("Failed to send skin to new player", e);
+                    NightfallSkin.LOGGER.error("Failed to send skin bundle", e);
                 }
+                batch.clear();
+                batchBytes = 0;
+            }
+            if (entry != null) {
+                batch.add(entry);
+                batchBytes += entry.data.length;
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Squared distance from viewer to owner, with other dimensions and offline owners last
+     */
+    private static double distancePriority(ServerPlayerEntity viewer, ServerPlayerEntity owner) {
+        if (owner == null) {
+            return Double.MAX_VALUE;
+        }
+        double distance = viewer.squaredDistanceTo(owner);
+        return owner.getWorld() == viewer.getWorld() ? distance : OTHER_DIMENSION_PENALTY + distance;
+    }
+
+    /**
+     * Announce one skin, pushing or streaming the blob where needed. Returns roughly how many bytes it queued.
+     */
+    private static int sendAnnouncement(ServerPlayerEntity player, SkinPeer peer, UUID skinOwnerUuid,
+                                        ServerSkinManager.SkinData skinData, List<SkinBundle.Entry> bundle) {
+        try {
+            SkinBlobStore.Blob blob = SkinBlobStore.get(skinData.hash);
+
+            // Clients without hash dedup only understand the full stream
+            if (!peer.getHello().supports(SkinHello.FEATURE_HASH_DEDUP)) {
+                if (blob != null) {
+                    sendChunkedSkinToPlayer(player, skinOwnerUuid, blob, skinData.isSlim);
+                    return blob.data.length;
+                }
+                return 0;
+            }
+
+            // Skip the request round trip when the client's inventory says it can't have the blob
+            HashBloomFilter inventory = peer.getHello().supports(SkinHello.FEATURE_INVENTORY) ? peer.getInventory() : null;
+            boolean push = inventory != null && blob != null && !inventory.mightContain(skinData.hash);
+
+            PacketByteBuf hashBuf = new PacketByteBuf(Unpooled.buffer());
+            hashBuf.writeUuid(skinOwnerUuid);
+            hashBuf.writeString(skinData.hash);
+            hashBuf.writeBoolean(skinData.isSlim);
+            hashBuf.writeBoolean(push);
+            peer.getSendQueue().enqueue(SKIN_HASH, hashBuf);
+
+            if (push) {
+                inventory.add(skinData.hash);
+                if (bundle != null) {
+                    byte codec = chooseCodec(peer.getHello(), blob);
+                    byte[] data = blob.getEncoded(codec);
+                    if (data != null) {
+                        bundle.add(new SkinBundle.Entry(skinOwnerUuid, skinData.isSlim, codec, data));
+                    }
+                } else {
+                    sendChunkedSkinToPlayer(player, skinOwnerUuid, blob, skinData.isSlim);
+                }
+                return ANNOUNCEMENT_BYTES + blob.data.length;
+            }
+            return ANNOUNCEMENT_BYTES;
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to announce skin", e);
+            return ANNOUNCEMENT_BYTES;
+        }
+    }
+
+    /**
+     * Tell the server about a model-only change. Returns false if the server
+     * doesn't support that and needs the whole skin again.
+     */
+    public static boolean sendModelUpdate(boolean isSlim) {
+        if (!serverHello.supports(SkinHello.FEATURE_MODEL_UPDATE)) {
+            return false;
+        }
+        // Behind any upload still being prepared, so the server sees them in order
+        SkinUploadPipeline.submit(() -> {
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+            buf.writeBoolean(isSlim);
+            getUploadQueue().enqueue(MODEL_UPDATE, buf);
+        });
+        return true;
+    }
+
+    public static void sendSkinReset() {
+        SkinUploadPipeline.submit(() -> {
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+            getUploadQueue().enqueue(RESET_SKIN, buf);
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package net.kendo.nightfall.Network;
+
+import net.kendo.nightfall.ServerSkinManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Server-side skin sync state for one connected player (server thread only)
+ */
+public class SkinPeer {
+    public final UUID uuid;
+    public final int joinedAtTick;
+
+    // Skin packets to this client, paced per tick
+    private final SkinSendQueue sendQueue;
+
+    // What the client advertised; clients that never say hello get the legacy PNG stream.
+    // Also read from the Netty thread when deciding whether to ask for lost chunks.
+    private volatile SkinHello hello = SkinHello.LEGACY;
+
+    // Hashes the client holds in its disk cache, null if it never told us
+    private HashBloomFilter inventory = null;
+
+    // Set once the client says its skin channels are up
+    private boolean ready = false;
+
+    // The skin state we last sent to this client, per owner
+    private final Map<UUID, ServerSkinManager.SkinData> sent = new HashMap<>();
+
+    // Announcements waiting for a tick drain; newer state replaces older
+    private final Map<UUID, ServerSkinManager.SkinData> pending = new LinkedHashMap<>();
+
+    // Frames recently queued to this client, by transfer key, kept for resending lost chunks
+    private final Map<UUID, RecentFrames> recentFrames = new HashMap<>();
+
+    private static class RecentFrames {
+        final SkinFrames frames;
+        final int queuedAtTick;
+
+        RecentFrames(SkinFrames frames, int queuedAtTick) {
+            this.frames = frames;
+            this.queuedAtTick = queuedAtTick;
+        }
+    }
+
+    public SkinPeer(UUID uuid, int joinedAtTick, SkinSendQueue sendQueue) {
+        this.uuid = uuid;
+        this.joinedAtTick = joinedAtTick;
+        this.sendQueue = sendQueue;
+    }
+
+    public SkinSendQueue getSendQueue() {
+        return sendQueue;
+    }
+
+    public SkinHello getHello() {
+        return hello;
+    }
+
+    public void setHello(SkinHello hello) {
+        this.hello = hello;
+    }
+
+    public HashBloomFilter getInventory() {
+        return inventory;
+    }
+
+    public void setInventory(HashBloomFilter inventory) {
+        this.inventory = inventory;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady() {
+        this.ready = true;
+    }
+
+    /**
+     * Queue the owner's skin for this client unless it already has exactly this state
+     */
+    public void queueAnnouncement(UUID owner, ServerSkinManager.SkinData skinData) {
+        if (sent.get(owner) == skinData) {
+            pending.remove(owner);
+            return;
+        }
+        pending.put(owner, skinData);
+    }
+
+    /**
+     * Owners with a queued announcement, in queue order
+     */
+    public List<UUID> getPendingOwners() {
+        return new ArrayList<>(pending.keySet());
+    }
+
+    /**
+     * Take the queued announcement for an owner and record it as sent, or null if none
+     */
+    public ServerSkinManager.SkinData takeAnnouncement(UUID owner) {
+        ServerSkinManager.SkinData skinData = pending.remove(owner);
+        if (skinData != null) {
+            sent.put(owner, skinData);
+        }
+        return skinData;
+    }
+
+    public boolean hasPending(UUID owner) {
+        return pending.containsKey(owner);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public void markSent(UUID owner, ServerSkinManager.SkinData skinData) {
+        sent.put(owner, skinData);
+    }
+
+    /**
+     * Whether this client has been sent any skin state for the owner
+     */
+    public boolean knows(UUID owner) {
+        return sent.containsKey(owner);
+    }
+
+    /**
+     * Keep a reference to frames just queued under a transfer key, replacing older ones
+     */
+    public void rememberFrames(UUID key, SkinFrames frames, int tick) {
+        RecentFrames previous = recentFrames.put(key, new RecentFrames(frames.retain(), tick));
+        if (previous != null) {
+            previous.frames.release();
+        }
+    }
+
+    /**
+     * Frames queued under a transfer key within the resend window, or null
+     */
+    public SkinFrames getRecentFrames(UUID key) {
+        RecentFrames recent = recentFrames.get(key);
+        return recent != null ? recent.frames : null;
+    }
+
+    /**
+     * Release frames queued before the given tick
+     */
+    public void expireFrames(int beforeTick) {
+        Iterator<RecentFrames> iterator = recentFrames.values().iterator();
+        while (iterator.hasNext()) {
+            RecentFrames recent = iterator.next();
+            if (recent.queuedAtTick < beforeTick) {
+                iterator.remove();
+                recent.frames.release();
+            }
+        }
+    }
+
+    public void releaseFrames() {
+        for (RecentFrames recent : recentFrames.values()) {
+            recent.frames.release();
+        }
+        recentFrames.clear();
+    }
+
+    public void forget(UUID owner) {
+        sent.remove(owner);
+        pending.remove(owner);
+        RecentFrames recent = recentFrames.remove(owner);
+        if (recent != null) {
+            recent.frames.release();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package net.kendo.nightfall.Network;
+
+import io.netty.buffer.ByteBuf;
+import net.kendo.nightfall.NightfallSkin;
+import net.kendo.nightfall.codec.SkinCodecs;
+
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reassembles chunked skin transfers directly on the Netty event loop.
+ * All packets of one transfer come from one connection, so each transfer is only
+ * touched by that connection's thread; the map itself is shared between connections.
+ * Only the finished payload is handed to the game thread.
+ *
+ * Sizes are announced by the peer, so every transfer is checked against a global byte
+ * budget and per-peer limits before its buffer is allocated, and abandoned transfers
+ * are expired by {@link #sweep()}.
+ */
+public class SkinReassembler {
+    private final Map<UUID, ChunkedSkinData> transfers = new ConcurrentHashMap<>();
+    private final Map<UUID, PeerUsage> peers = new HashMap<>();
+
+    private final int maxChunkSize;
+    private final Limits limits;
+    private long reservedBytes = 0;
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong incompleteCount = new AtomicLong();
+    private final AtomicLong corruptChunkCount = new AtomicLong();
+    private final AtomicLong resendRequestCount = new AtomicLong();
+
+    public SkinReassembler(int maxChunkSize, Limits limits) {
+        this.maxChunkSize = maxChunkSize;
+        this.limits = limits;
+    }
+
+    /**
+     * Budgets for in-flight transfers
+     */
+    public static class Limits {
+        final int maxTransferSize;
+        final long maxTotalBytes;
+        final long maxPeerBytes;
+        final int maxPeerTransfers;
+        final long timeoutMs;
+
+        public Limits(int maxTransferSize, long maxTotalBytes, long maxPeerBytes, int maxPeerTransfers, long timeoutMs) {
+            this.maxTransferSize = maxTransferSize;
+            this.maxTotalBytes = maxTotalBytes;
+            this.maxPeerBytes = maxPeerBytes;
+            this.maxPeerTransfers = maxPeerTransfers;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    private static class PeerUsage {
+        long bytes;
+        int transfers;
+    }
+
+    /**
+     * One in-flight transfer. The whole payload is allocated once from the announced
+     * size and every chunk is read straight into its offset.
+     */
+    private static class ChunkedSkinData {
+        final UUID peer;
+        final int totalChunks;
+        final int chunkSize;
+        final byte[] buffer;
+        final BitSet received;
+        final byte codec;
+        final boolean isSlim;
+        final long timestamp;
+        // Pushed forward by resend requests, so a transfer being repaired isn't expired
+        volatile long lastActivity;
+        int resendRequests = 0;
+
+        ChunkedSkinData(UUID peer, int totalChunks, int chunkSize, int totalSize, byte codec, boolean isSlim) {
+            this.peer = peer;
+            this.totalChunks = totalChunks;
+            this.chunkSize = chunkSize;
+            this.buffer = new byte[totalSize];
+            this.received = new BitSet(totalChunks);
+            this.codec = codec;
+            this.isSlim = isSlim;
+            this.timestamp = System.currentTimeMillis();
+            this.lastActivity = timestamp;
+        }
+
+        boolean isComplete() {
+            return received.cardinality() == totalChunks;
+        }
+    }
+
+    /**
+     * Completed transfer, ready for the game thread
+     */
+    public static class Payload {
+        public final byte[] data;
+        public final byte codec;
+        public final boolean isSlim;
+        // Time from the start frame to the end frame
+        public final long elapsedMs;
+
+        Payload(byte[] data, byte codec, boolean isSlim, long elapsedMs) {
+            this.data = data;
+            this.codec = codec;
+            this.isSlim = isSlim;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    /**
+     * Begin a transfer from a peer, replacing any unfinished one with the same key.
+     * Returns false if the announced transfer is malformed or over budget.
+     */
+    public synchronized boolean start(UUID peer, UUID key, byte codec, boolean isSlim, int totalChunks, int chunkSize, int totalSize) {
+        ChunkedSkinData previous = transfers.remove(key);
+        if (previous != null) {
+            releaseBudget(previous);
+        }
+
+        if (totalSize <= 0 || totalSize > limits.maxTransferSize
+                || chunkSize <= 0 || chunkSize > maxChunkSize
+                || totalChunks != (totalSize + chunkSize - 1) / chunkSize
+                || SkinCodecs.get(codec) == null) {
+            return reject(key, "malformed", totalSize, totalChunks);
+        }
+
+        PeerUsage usage = peers.get(peer);
+        int peerTransfers = usage != null ? usage.transfers : 0;
+        long peerBytes = usage != null ? usage.bytes : 0;
+
+        if (peerTransfers >= limits.maxPeerTransfers) {
+            return reject(key, "too many concurrent transfers", totalSize, totalChunks);
+        }
+        if (peerBytes + totalSize > limits.maxPeerBytes) {
+            return reject(key, "peer byte limit", totalSize, totalChunks);
+        }
+        if (reservedBytes + totalSize > limits.maxTotalBytes) {
+            return reject(key, "global byte budget", totalSize, totalChunks);
+        }
+
+        if (usage == null) {
+            usage = new PeerUsage();
+            peers.put(peer, usage);
+        }
+        usage.transfers++;
+        usage.bytes += totalSize;
+        reservedBytes += totalSize;
+        transfers.put(key, new ChunkedSkinData(peer, totalChunks, chunkSize, totalSize, codec, isSlim));
+        return true;
+    }
+
+    private boolean reject(UUID key, String reason, int totalSize, int totalChunks) {
+        rejectedCount.incrementAndGet();
+        NightfallSkin.LOGGER.warn("Rejected skin transfer for {} ({}): {} bytes in {} chunks", key, reason, totalSize, totalChunks);
+        return false;
+    }
+
+    private void releaseBudget(ChunkedSkinData data) {
+        reservedBytes -= data.buffer.length;
+        PeerUsage usage = peers.get(data.peer);
+        if (usage != null) {
+            usage.bytes -= data.buffer.length;
+            if (--usage.transfers <= 0) {
+                peers.remove(data.peer);
+            }
+        }
+    }
+
+    /**
+     * Read one chunk of a transfer from the packet straight into its slot.
+     * Chunks from newer senders end with a CRC32 of the data; a chunk that fails it
+     * is left missing so the sender can be asked for it again.
+     */
+    public void addChunk(UUID key, int chunkIndex, int length, ByteBuf source) {
+        ChunkedSkinData data = transfers.get(key);
+        if (data == null) {
+            return;
+        }
+
+        int offset = chunkIndex * data.chunkSize;
+        if (chunkIndex < 0 || chunkIndex >= data.totalChunks
+                || length != Math.min(data.chunkSize, data.buffer.length - offset)
+                || source.readableBytes() < length) {
+            NightfallSkin.LOGGER.warn("Dropped malformed chunk {} ({} bytes) for {}", chunkIndex, length, key);
+            return;
+        }
+
+        source.readBytes(data.buffer, offset, length);
+        if (source.readableBytes() >= 4) {
+            int expected = source.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(data.buffer, offset, length);
+            if ((int) crc.getValue() != expected) {
+                corruptChunkCount.incrementAndGet();
+                data.received.clear(chunkIndex);
+                NightfallSkin.LOGGER.warn("Chunk {} of {} failed its checksum", chunkIndex, key);
+                return;
+            }
+        }
+        data.received.set(chunkIndex);
+        NightfallSkin.LOGGER.debug("Received chunk {}/{} for {}", chunkIndex + 1, data.totalChunks, key);
+    }
+
+    /**
+     * Called when a transfer's end frame arrives incomplete: returns the chunk indices to ask
+     * the sender for again and keeps the transfer open. Returns null if there is nothing to
+     * ask for (unknown, complete, or out of attempts); the caller then finishes it.
+     */
+    public synchronized int[] requestResend(UUID key, int maxRequests) {
+        ChunkedSkinData data = transfers.get(key);
+        if (data == null || data.isComplete() || data.resendRequests >= maxRequests) {
+            return null;
+        }
+
+        data.resendRequests++;
+        data.lastActivity = System.currentTimeMillis();
+        resendRequestCount.incrementAndGet();
+
+        int[] missing = new int[data.totalChunks - data.received.cardinality()];
+        int next = 0;
+        for (int i = data.received.nextClearBit(0); i < data.totalChunks && next < missing.length; i = data.received.nextClearBit(i + 1)) {
+            missing[next++] = i;
+        }
+        NightfallSkin.LOGGER.info("Asking again for {} of {} chunks of {} (attempt {})",
+                missing.length, data.totalChunks, key, data.resendRequests);
+        return missing;
+    }
+
+    /**
+     * Finish a transfer, returning the assembled payload or null if it is incomplete
+     */
+    public synchronized Payload finish(UUID key) {
+        ChunkedSkinData data = transfers.remove(key);
+        if (data != null) {
+            releaseBudget(data);
+        }
+        if (data == null || !data.isComplete()) {
+            incompleteCount.incrementAndGet();
+            NightfallSkin.LOGGER.error("Failed to receive complete skin for {}", key);
+            return null;
+        }
+
+        completedCount.incrementAndGet();
+        return new Payload(data.buffer, data.codec, data.isSlim, System.currentTimeMillis() - data.timestamp);
+    }
+
+    /**
+     * Drop every unfinished transfer from a peer (e.g. on disconnect)
+     */
+    public synchronized void cancelPeer(UUID peer) {
+        Iterator<ChunkedSkinData> iterator = transfers.values().iterator();
+        while (iterator.hasNext()) {
+            ChunkedSkinData data = iterator.next();
+            if (data.peer.equals(peer)) {
+                iterator.remove();
+                releaseBudget(data);
+            }
+        }
+    }
+
+    /**
+     * Expire transfers that have been open longer than the timeout
+     */
+    public synchronized void sweep() {
+        long cutoff = System.currentTimeMillis() - limits.timeoutMs;
+        Iterator<Map.Entry<UUID, ChunkedSkinData>> iterator = transfers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, ChunkedSkinData> entry = iterator.next();
+            ChunkedSkinData data = entry.getValue();
+            if (data.lastActivity < cutoff) {
+                iterator.remove();
+                releaseBudget(data);
+                expiredCount.incrementAndGet();
+                NightfallSkin.LOGGER.warn("Expired skin transfer for {} ({}/{} chunks received)",
+                        entry.getKey(), data.received.cardinality(), data.totalChunks);
+            }
+        }
+    }
+
+    /**
+     * Chunks received so far for a transfer, for progress reporting
+     */
+    public int getReceivedChunks(UUID key) {
+        ChunkedSkinData data = transfers.get(key);
+        return data != null ? data.received.cardinality() : 0;
+    }
+
+    public int getTotalChunks(UUID key) {
+        ChunkedSkinData data = transfers.get(key);
+        return data != null ? data.totalChunks : 0;
+    }
+
+    public int getInFlightCount() {
+        return transfers.size();
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getIncompleteCount() {
+        return incompleteCount.get();
+    }
+
+    public long getCorruptChunkCount() {
+        return corruptChunkCount.get();
+    }
+
+    public long getResendRequestCount() {
+        return resendRequestCount.get();
+    }
+}
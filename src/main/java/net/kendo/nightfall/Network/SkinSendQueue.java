@@ -0,0 +1,172 @@
+package net.kendo.nightfall.Network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+import net.kendo.nightfall.mixin.ClientConnectionAccessor;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.PacketCallbacks;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayDeque;
+
+/**
+ * Outgoing skin packets for one connection, written a tick's budget at a time.
+ * Sending pauses while Netty reports the channel unwritable, so skin traffic
+ * never piles up in front of movement and chunk packets.
+ */
+public class SkinSendQueue {
+    private final PacketSender sender;
+    private final ClientConnection connection;
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private long queuedBytes = 0;
+
+    // Pacing metrics
+    private long framesSent = 0;
+    private long bytesSent = 0;
+    private long pausedTicks = 0;
+    private long totalDelayNanos = 0;
+    private long maxDelayNanos = 0;
+
+    private static class Frame {
+        final Identifier channel;
+        final ByteBuf buf;
+        // Shared frames are retained views of a SkinFrames buffer, released once written
+        final boolean shared;
+        final long queuedAt;
+
+        Frame(Identifier channel, ByteBuf buf, boolean shared) {
+            this.channel = channel;
+            this.buf = buf;
+            this.shared = shared;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    public SkinSendQueue(PacketSender sender, ClientConnection connection) {
+        this.sender = sender;
+        this.connection = connection;
+    }
+
+    /**
+     * Queue a packet built for this connection alone
+     */
+    public synchronized void enqueue(Identifier channel, PacketByteBuf buf) {
+        add(new Frame(channel, buf, false));
+    }
+
+    /**
+     * Queue a frame shared with other recipients (see {@link SkinFrames})
+     */
+    public synchronized void enqueueShared(Identifier channel, ByteBuf frame) {
+        if (connection.isLocal()) {
+            // In-memory connections hand the packet object straight to the client, which
+            // reads and releases it itself, so it gets a private copy instead of a shared view
+            add(new Frame(channel, frame.copy(), false));
+        } else {
+            add(new Frame(channel, frame.retainedDuplicate(), true));
+        }
+    }
+
+    private void add(Frame frame) {
+        frames.add(frame);
+        queuedBytes += frame.buf.readableBytes();
+    }
+
+    /**
+     * Write queued frames until the budget is spent or the channel stops accepting data.
+     * One frame always goes out on a writable channel, even if it alone is over the budget.
+     * Returns the bytes written.
+     */
+    public synchronized int flush(int budget) {
+        if (frames.isEmpty()) {
+            return 0;
+        }
+        if (!isWritable()) {
+            pausedTicks++;
+            return 0;
+        }
+
+        int written = 0;
+        while (!frames.isEmpty() && written < budget && isWritable()) {
+            Frame frame = frames.poll();
+            int size = frame.buf.readableBytes();
+            queuedBytes -= size;
+
+            try {
+                if (frame.shared) {
+                    ByteBuf buf = frame.buf;
+                    sender.sendPacket(frame.channel, new PacketByteBuf(buf), PacketCallbacks.always(buf::release));
+                } else {
+                    sender.sendPacket(frame.channel, new PacketByteBuf(frame.buf));
+                }
+            } catch (RuntimeException e) {
+                frame.buf.release();
+                throw e;
+            }
+
+            long delay = System.nanoTime() - frame.queuedAt;
+            totalDelayNanos += delay;
+            maxDelayNanos = Math.max(maxDelayNanos, delay);
+            framesSent++;
+            bytesSent += size;
+            written += size;
+        }
+        return written;
+    }
+
+    private boolean isWritable() {
+        Channel channel = ((ClientConnectionAccessor) connection).getChannelAccessor();
+        return channel == null || channel.isWritable();
+    }
+
+    /**
+     * Drop everything still queued, e.g. when the connection closes
+     */
+    public synchronized void clear() {
+        for (Frame frame : frames) {
+            frame.buf.release();
+        }
+        frames.clear();
+        queuedBytes = 0;
+    }
+
+    public synchronized int getQueuedFrames() {
+        return frames.size();
+    }
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public synchronized long getFramesSent() {
+        return framesSent;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Ticks on which queued frames were held back because the channel was full
+     */
+    public synchronized long getPausedTicks() {
+        return pausedTicks;
+    }
+
+    public synchronized double getAverageDelayMillis() {
+        return framesSent == 0 ? 0 : totalDelayNanos / (framesSent * 1_000_000.0);
+    }
+
+    public synchronized double getMaxDelayMillis() {
+        return maxDelayNanos / 1_000_000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("queued=%d frames/%d B, sent=%d frames/%d B, paused=%d ticks, delay avg=%.1f ms max=%.1f ms",
+                frames.size(), queuedBytes, framesSent, bytesSent, pausedTicks,
+                getAverageDelayMillis(), getMaxDelayMillis());
+    }
+}
@@ -0,0 +1,150 @@
+package net.kendo.nightfall.Network;
+
+import net.kendo.nightfall.NightfallSkin;
+import net.kendo.nightfall.SkinWorkers;
+import net.kendo.nightfall.codec.SkinCodec;
+import net.kendo.nightfall.codec.SkinDownscaler;
+import net.kendo.nightfall.codec.SkinLayout;
+import net.kendo.nightfall.codec.SkinPixels;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Client-side upload preparation, off the render thread.
+ * Every skin packet the client sends goes through this one worker, so uploads,
+ * model updates and resets reach the server in the order they were made.
+ */
+public class SkinUploadPipeline {
+    // Largest encoded skin we upload; bigger images are downscaled until they fit
+    public static final int TARGET_BYTES = 100000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(SkinWorkers.threadFactory("Skin Upload Prep"));
+
+    public enum Stage {
+        IDLE, PREPARING, UPLOADING, DONE, FAILED
+    }
+
+    /**
+     * What the pipeline is doing right now, for display
+     */
+    public static class Status {
+        public final Stage stage;
+        public final String message;
+        // Bytes handed to the send queue for the current upload
+        public final long uploadBytes;
+
+        Status(Stage stage, String message, long uploadBytes) {
+            this.stage = stage;
+            this.message = message;
+            this.uploadBytes = uploadBytes;
+        }
+    }
+
+    private static volatile Status status = new Status(Stage.IDLE, "", 0);
+
+    /**
+     * Encoded skin ready to send
+     */
+    public static class Prepared {
+        public final byte[] data;
+        public final int size;
+
+        Prepared(byte[] data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+
+    public static Status getStatus() {
+        return status;
+    }
+
+    static void setStatus(Stage stage, String message, long uploadBytes) {
+        status = new Status(stage, message, uploadBytes);
+    }
+
+    /**
+     * Run a send step on the upload worker, after everything submitted before it
+     */
+    public static void submit(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Skin upload step failed", e);
+                setStatus(Stage.FAILED, "Upload failed: " + e.getMessage(), 0);
+            }
+        });
+    }
+
+    /**
+     * Encode at the largest candidate size of the skin (see {@link SkinDownscaler#targetSizes}) up to maxSize
+     * whose encoding fits {@link #TARGET_BYTES}.
+     *
+     * The first over-size encode gives a bytes-per-pixel figure, which picks the first size to try;
+     * a binary search over the remaining candidates then needs only a few encodes of smaller images.
+     */
+    public static Prepared prepare(BufferedImage image, int maxSize, SkinCodec codec) throws IOException {
+        if (!SkinLayout.isSkinLayout(image.getWidth(), image.getHeight())) {
+            throw new IOException("Invalid skin dimensions: " + image.getWidth() + "x" + image.getHeight());
+        }
+
+        SkinPixels pixels = SkinPixels.fromImage(image);
+        // Largest first, down to 64
+        List<Integer> sizes = SkinDownscaler.targetSizes(pixels.width, maxSize);
+        if (sizes.isEmpty()) {
+            throw new IOException("No skin size fits within " + maxSize);
+        }
+
+        int size = sizes.get(0);
+        setStatus(Stage.PREPARING, "Encoding " + size + "x" + size + "...", 0);
+        byte[] encoded = encode(pixels, size, codec);
+        if (encoded.length <= TARGET_BYTES || sizes.size() == 1) {
+            return new Prepared(encoded, size);
+        }
+
+        // Search indices [lo, hi] of the candidates; index 0 is known not to fit
+        int lo = 1;
+        int hi = sizes.size() - 1;
+        double bytesPerPixel = (double) encoded.length / ((long) size * size);
+        double estimate = Math.sqrt(TARGET_BYTES / bytesPerPixel);
+
+        int probe = lo;
+        while (probe < hi && sizes.get(probe) > estimate) {
+            probe++;
+        }
+
+        Prepared best = null;
+        while (lo <= hi) {
+            int probeSize = sizes.get(probe);
+            setStatus(Stage.PREPARING, "Encoding " + probeSize + "x" + probeSize + "...", 0);
+            byte[] attempt = encode(pixels, probeSize, codec);
+            NightfallSkin.LOGGER.debug("Skin at {}x{}: {} bytes", probeSize, probeSize, attempt.length);
+
+            if (attempt.length <= TARGET_BYTES) {
+                best = new Prepared(attempt, probeSize);
+                hi = probe - 1;
+            } else {
+                lo = probe + 1;
+            }
+            probe = (lo + hi) / 2;
+        }
+
+        if (best == null) {
+            // Even 64x64 is over the target; send it anyway and let the server decide
+            int smallest = sizes.get(sizes.size() - 1);
+            best = new Prepared(encode(pixels, smallest, codec), smallest);
+        }
+        NightfallSkin.LOGGER.info("Skin too large at {}x{} ({} bytes), sending {}x{}",
+                size, size, encoded.length, best.size, best.size);
+        return best;
+    }
+
+    private static byte[] encode(SkinPixels pixels, int size, SkinCodec codec) throws IOException {
+        return codec.encode(SkinDownscaler.downscale(pixels, size));
+    }
+}
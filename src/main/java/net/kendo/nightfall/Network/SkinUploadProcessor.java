@@ -0,0 +1,140 @@
+package net.kendo.nightfall.Network;
+
+import net.kendo.nightfall.NightfallSkin;
+import net.kendo.nightfall.SkinHash;
+import net.kendo.nightfall.SkinWorkers;
+import net.kendo.nightfall.codec.PngSkinCodec;
+import net.kendo.nightfall.codec.SkinCodec;
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.kendo.nightfall.codec.SkinPixels;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Decodes, validates and re-encodes uploaded skins on a small worker pool, so the
+ * server thread never touches image data and every client receives the same
+ * canonical bytes for the same image.
+ */
+public class SkinUploadProcessor {
+    // Uploads waiting for a worker; anything beyond this is dropped rather than queued without bound
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int MIN_SIZE = 64;
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(SkinWorkers.THREADS, SkinWorkers.THREADS,
+            30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), SkinWorkers.threadFactory("Skin Upload Worker"));
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Latest upload per player; results of older ones are dropped
+    private static final SkinWorkers.Generations generations = new SkinWorkers.Generations();
+
+    /**
+     * A validated upload in canonical form
+     */
+    public static class Result {
+        public final String hash;
+        public final byte[] data;
+        public final byte codec;
+        public final boolean isSlim;
+        // PNG encoding of the same pixels, for clients that only read PNG; null if the canonical form is PNG
+        public final byte[] pngVariant;
+
+        Result(String hash, byte[] data, byte codec, boolean isSlim, byte[] pngVariant) {
+            this.hash = hash;
+            this.data = data;
+            this.codec = codec;
+            this.isSlim = isSlim;
+            this.pngVariant = pngVariant;
+        }
+    }
+
+    /**
+     * Process an upload off-thread and hand the result to the server thread.
+     * Invalid uploads, and uploads superseded before they finish, never reach the callback.
+     */
+    public static void submit(UUID owner, SkinReassembler.Payload payload, int maxResolution,
+                              Executor serverThread, Consumer<Result> onValid) {
+        long generation = generations.next(owner);
+        try {
+            executor.execute(() -> {
+                Result result = process(owner, payload, maxResolution);
+                if (result == null) {
+                    SkinMetrics.get().recordInvalid();
+                    return;
+                }
+                serverThread.execute(() -> {
+                    if (generations.isCurrent(owner, generation)) {
+                        onValid.accept(result);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            SkinMetrics.get().recordInvalid();
+            NightfallSkin.LOGGER.warn("Dropped skin upload from {}: validation queue is full", owner);
+        }
+    }
+
+    /**
+     * Forget pending uploads from a player, e.g. after a reset or disconnect
+     */
+    public static void cancel(UUID owner) {
+        generations.next(owner);
+    }
+
+    public static void forget(UUID owner) {
+        generations.remove(owner);
+    }
+
+    private static Result process(UUID owner, SkinReassembler.Payload payload, int maxResolution) {
+        try {
+            SkinCodec codec = SkinCodecs.get(payload.codec);
+            if (codec == null) {
+                throw new IOException("unknown codec " + payload.codec);
+            }
+
+            // Check PNG dimensions from the header before letting ImageIO allocate anything
+            if (payload.codec == SkinCodecs.PNG) {
+                int[] size = PngSkinCodec.readSize(payload.data);
+                checkDimensions(size[0], size[1], maxResolution);
+            }
+
+            SkinPixels pixels = codec.decode(payload.data);
+            checkDimensions(pixels.width, pixels.height, maxResolution);
+
+            // The compact form drops texels the model never samples; the PNG is made from
+            // its decoded pixels so both encodings show exactly the same image
+            byte[] compact = SkinCodecs.get(SkinCodecs.COMPACT).encode(pixels);
+            byte[] png = SkinCodecs.get(SkinCodecs.PNG).encode(SkinCodecs.get(SkinCodecs.COMPACT).decode(compact));
+
+            Result result = compact.length <= png.length
+                    ? new Result(SkinHash.of(compact), compact, SkinCodecs.COMPACT, payload.isSlim, png)
+                    : new Result(SkinHash.of(png), png, SkinCodecs.PNG, payload.isSlim, null);
+
+            NightfallSkin.LOGGER.debug("Validated skin from {}: {}x{}, {} -> {} bytes ({})", owner,
+                    pixels.width, pixels.height, payload.data.length, result.data.length,
+                    SkinCodecs.get(result.codec).getName());
+            return result;
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.warn("Rejected invalid skin upload from {}: {}", owner, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Same rules the client applies before uploading: square, a multiple of 64, within the server's limit
+     */
+    private static void checkDimensions(int width, int height, int maxResolution) throws IOException {
+        if (width != height || width < MIN_SIZE || width > maxResolution || width % MIN_SIZE != 0) {
+            throw new IOException("bad dimensions " + width + "x" + height);
+        }
+    }
+}
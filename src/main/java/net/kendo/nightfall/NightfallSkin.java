@@ -1,7 +1,11 @@
 package net.kendo.nightfall;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.EntityTrackingEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.kendo.nightfall.Network.SkinMetrics;
 import net.kendo.nightfall.Network.SkinNetworkHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,25 +21,25 @@ public class NightfallSkin implements ModInitializer {
         // Register server-side receivers (works for both integrated and dedicated servers)
         SkinNetworkHandler.registerServerReceivers();
 
-        // When a player joins, send them all existing skins
+        // Expire abandoned uploads
+        ServerTickEvents.END_SERVER_TICK.register(SkinNetworkHandler::onServerTick);
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            SkinNetworkHandler.onPlayerDisconnect(handler.getPlayer());
+        });
+
+        // Skins follow entity tracking: a player hears about a skin once its owner comes into view
+        EntityTrackingEvents.START_TRACKING.register(SkinNetworkHandler::onStartTracking);
+
+        // Operator view of skin traffic, also published over JMX
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
+            SkinStatsCommand.register(dispatcher);
+        });
+        SkinMetrics.registerMBean();
+
+        // Skins are queued from here on and delivered on ticks once the client says it is ready
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
-            LOGGER.info("Player {} joined, will send existing skins after delay",
-                    handler.getPlayer().getName().getString());
-
-            server.execute(() -> {
-                // Small delay to ensure client is ready
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-
-                // Send all existing skins to the new player
-                SkinNetworkHandler.sendAllSkinsToPlayer(
-                        handler.getPlayer(),
-                        server.getPlayerManager().getPlayerList()
-                );
-            });
+            SkinNetworkHandler.onPlayerJoin(handler.getPlayer(), sender);
         });
     }
 }
\ No newline at end of file
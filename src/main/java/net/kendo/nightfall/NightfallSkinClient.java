@@ -1,9 +1,11 @@
 package net.kendo.nightfall;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.kendo.nightfall.Network.SkinNetworkHandler;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
@@ -27,6 +29,10 @@ public class NightfallSkinClient implements ClientModInitializer {
                 "category.skinchanger.general"
         ));
 
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
+            SkinTexturesCommand.register(dispatcher);
+        });
+
         // Register tick event to check for keybinding
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             while (openGuiKey.wasPressed()) {
@@ -34,40 +40,20 @@ public class NightfallSkinClient implements ClientModInitializer {
                     client.setScreen(new SkinChangerScreen());
                 }
             }
+
+            SkinNetworkHandler.onClientTick(client);
         });
 
-        // Auto-apply last used skin when joining a world/server
-        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
-            // Small delay to ensure client is ready
-            new Thread(() -> {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+        // Received skins become textures a few per frame, within the configured time budget
+        WorldRenderEvents.END.register(context -> RemoteSkinLoader.uploadFrame());
+
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+            client.execute(SkinNetworkHandler::onClientDisconnect);
+        });
 
-                client.execute(() -> {
-                    // Get most recent skin from history
-                    SkinHistory.SkinEntry lastSkin = SkinHistory.getMostRecentSkin();
-                    if (lastSkin != null && lastSkin.getFile().exists()) {
-                        try {
-                            NightfallSkin.LOGGER.info("Auto-applying last used skin: {}", lastSkin.getDisplayName());
-                            java.awt.image.BufferedImage skinImage = javax.imageio.ImageIO.read(lastSkin.getFile());
-                            if (skinImage != null) {
-                                // Use the saved model preference instead of the skin's stored model
-                                boolean useSlim = ModelPreferenceManager.isSlimPreference();
-                                SkinManager.applySkin(client, skinImage, useSlim);
-                                NightfallSkin.LOGGER.info("Successfully reapplied skin on startup with model: {}",
-                                        useSlim ? "Slim" : "Wide");
-                            }
-                        } catch (Exception e) {
-                            NightfallSkin.LOGGER.error("Failed to auto-apply last skin", e);
-                        }
-                    } else {
-                        NightfallSkin.LOGGER.info("No previous skin to apply");
-                    }
-                });
-            }).start();
+        // Handshake with the server; the last used skin is re-applied once it acknowledges
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            SkinNetworkHandler.onClientJoin(handler, sender);
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,332 @@
+package net.kendo.nightfall;
+
+import net.kendo.nightfall.Network.SkinMetrics;
+import net.minecraft.client.texture.AbstractTexture;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gets remote skins on screen without stalling frames.
+ * Payloads are decoded into NativeImages on a small worker pool; the render thread then
+ * uploads only as much per frame as the configured time budget allows. Large skins go up
+ * in tiles over several frames (see {@link TiledSkinTexture}), one skin at a time.
+ *
+ * Each hash is decoded once: players whose skin arrives while the same hash is already
+ * on its way wait for that decode and share the resulting texture.
+ * Skins held in the disk cache are read by the same workers, so a join full of cache hits
+ * costs the client thread nothing but index lookups.
+ * Everything except reading and decoding runs on the client thread.
+ */
+public class RemoteSkinLoader {
+    private static final ExecutorService executor = Executors.newFixedThreadPool(SkinWorkers.THREADS,
+            SkinWorkers.threadFactory("Skin Decode Worker"));
+
+    // Decodes by hash, from submit until their texture is shown (client thread only)
+    private static final Map<String, Job> inFlight = new HashMap<>();
+    // Finished decodes waiting for the render thread, in the order they finished
+    private static final Queue<Job> ready = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger decoding = new AtomicInteger();
+    // Large skin being uploaded tile by tile (render thread only)
+    private static Uploading uploading = null;
+
+    // Latest skin per player; older ones are dropped when their decode finishes
+    private static final SkinWorkers.Generations generations = new SkinWorkers.Generations();
+    // Model of each pending skin, so a model update that arrives before the texture isn't lost
+    private static final Map<UUID, Boolean> pendingModels = new ConcurrentHashMap<>();
+
+    // Arrival of the payload to its texture being registered, in milliseconds
+    private static final SkinMetrics.Histogram arrivalToVisible = new SkinMetrics.Histogram();
+
+    /**
+     * What to do when a skin expected in the disk cache can't be read from it (client thread)
+     */
+    public interface CacheMiss {
+        void onMiss(UUID owner, boolean isSlim);
+    }
+
+    /**
+     * One decode of one hash, and the players waiting for it
+     */
+    private static class Job {
+        final String hash;
+        final boolean fromCache;
+        // Read by the worker for cache loads; still null afterwards if the entry was unreadable
+        volatile byte[] data;
+        volatile byte codec;
+        final List<Waiter> waiters = new ArrayList<>();
+        // Set by the worker before the job is queued as ready; null if decoding failed
+        volatile NativeImage image;
+
+        Job(String hash, byte[] data, byte codec, boolean fromCache) {
+            this.hash = hash;
+            this.data = data;
+            this.codec = codec;
+            this.fromCache = fromCache;
+        }
+    }
+
+    private static class Waiter {
+        final UUID owner;
+        final long generation;
+        final boolean isSlim;
+        final long arrivedNanos;
+        // Only for cache loads
+        final CacheMiss miss;
+
+        Waiter(UUID owner, long generation, boolean isSlim, long arrivedNanos, CacheMiss miss) {
+            this.owner = owner;
+            this.generation = generation;
+            this.isSlim = isSlim;
+            this.arrivedNanos = arrivedNanos;
+            this.miss = miss;
+        }
+    }
+
+    private static class Uploading {
+        final Job job;
+        final TiledSkinTexture texture;
+        final int width;
+        final int height;
+
+        Uploading(Job job, TiledSkinTexture texture, int width, int height) {
+            this.job = job;
+            this.texture = texture;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Decode a player's skin off-thread; it becomes visible on a later frame.
+     * Replaces anything still pending for the same player, and joins a decode of the same hash
+     * that is already under way.
+     */
+    public static void submit(UUID owner, String hash, byte[] data, byte codec, boolean isSlim, long arrivedNanos) {
+        Waiter waiter = new Waiter(owner, generations.next(owner), isSlim, arrivedNanos, null);
+        pendingModels.put(owner, isSlim);
+
+        // A cache load may come up empty, and this payload must not be lost with it
+        Job job = inFlight.get(hash);
+        if (job != null && !job.fromCache) {
+            job.waiters.add(waiter);
+            return;
+        }
+        start(new Job(hash, data, codec, false), waiter);
+    }
+
+    /**
+     * Like {@link #submit}, for a skin the disk cache holds: the file is read on a worker as part of the decode.
+     * If it turns out to be unreadable or won't decode, the entry is dropped from the cache and the miss
+     * callback runs for the player instead, on a later frame.
+     */
+    public static void submitCached(UUID owner, String hash, boolean isSlim, long arrivedNanos, CacheMiss miss) {
+        Waiter waiter = new Waiter(owner, generations.next(owner), isSlim, arrivedNanos, miss);
+        pendingModels.put(owner, isSlim);
+
+        Job job = inFlight.get(hash);
+        if (job != null) {
+            job.waiters.add(waiter);
+            return;
+        }
+        start(new Job(hash, null, (byte) 0, true), waiter);
+    }
+
+    private static void start(Job job, Waiter waiter) {
+        job.waiters.add(waiter);
+        inFlight.put(job.hash, job);
+        decoding.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                if (job.fromCache) {
+                    SkinCache.CachedSkin cached = SkinCache.get(job.hash);
+                    if (cached == null) {
+                        return;
+                    }
+                    job.codec = cached.codec;
+                    job.data = cached.data;
+                }
+                job.image = SkinImages.decode(job.data, job.codec);
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Failed to decode remote skin " + job.hash, e);
+                if (job.fromCache) {
+                    // Matches its hash but won't decode; don't serve it again
+                    SkinCache.remove(job.hash);
+                }
+            } finally {
+                ready.add(job);
+                decoding.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Upload decoded skins until this frame's budget is spent; called once per frame on the render thread.
+     * At least one step is taken per frame, so a tiny budget still makes progress.
+     */
+    public static void uploadFrame() {
+        if (ready.isEmpty() && uploading == null) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + SkinNetworkConfig.getTextureUploadMicrosPerFrame() * 1000L;
+        do {
+            if (!step()) {
+                break;
+            }
+        } while (System.nanoTime() < deadline);
+    }
+
+    /**
+     * One unit of upload work: a tile of the large skin in progress, or the next decoded skin.
+     * False when there is nothing to do.
+     */
+    private static boolean step() {
+        if (uploading != null) {
+            Uploading current = uploading;
+            if (!hasCurrentWaiter(current.job)) {
+                uploading = null;
+                inFlight.remove(current.job.hash, current.job);
+                current.texture.close();
+            } else if (current.texture.uploadNextTile()) {
+                uploading = null;
+                show(current.job, current.texture, current.width, current.height);
+            }
+            return true;
+        }
+
+        Job next = ready.poll();
+        if (next == null) {
+            return false;
+        }
+
+        NativeImage image = next.image;
+        if (image == null && next.fromCache) {
+            inFlight.remove(next.hash, next);
+            missWaiters(next);
+        } else if (image == null || !hasCurrentWaiter(next)) {
+            inFlight.remove(next.hash, next);
+            dropWaiters(next);
+            if (image != null) {
+                image.close();
+            }
+        } else if (TiledSkinTexture.needsTiling(image)) {
+            uploading = new Uploading(next, new TiledSkinTexture(image), image.getWidth(), image.getHeight());
+        } else {
+            show(next, new NativeImageBackedTexture(image), image.getWidth(), image.getHeight());
+        }
+        return true;
+    }
+
+    /**
+     * Register the finished texture once and hand a reference to every player still waiting for it
+     */
+    private static void show(Job job, AbstractTexture texture, int width, int height) {
+        inFlight.remove(job.hash, job);
+
+        Identifier textureId = null;
+        for (Waiter waiter : job.waiters) {
+            if (!generations.isCurrent(waiter.owner, waiter.generation)) {
+                continue;
+            }
+            textureId = textureId == null
+                    ? SkinTextureRegistry.register(job.hash, texture, width, height)
+                    : SkinTextureRegistry.acquire(job.hash);
+
+            Boolean isSlim = pendingModels.remove(waiter.owner);
+            SkinManager.wearRemoteTexture(waiter.owner, textureId, job.hash, job.data, job.codec,
+                    isSlim != null ? isSlim : waiter.isSlim);
+            arrivalToVisible.record((System.nanoTime() - waiter.arrivedNanos) / 1_000_000);
+        }
+
+        if (textureId == null) {
+            texture.close();
+        }
+    }
+
+    private static boolean hasCurrentWaiter(Job job) {
+        for (Waiter waiter : job.waiters) {
+            if (generations.isCurrent(waiter.owner, waiter.generation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void dropWaiters(Job job) {
+        for (Waiter waiter : job.waiters) {
+            if (generations.isCurrent(waiter.owner, waiter.generation)) {
+                pendingModels.remove(waiter.owner);
+            }
+        }
+    }
+
+    /**
+     * The cache had nothing usable: players still waiting get the skin some other way, with their latest model
+     */
+    private static void missWaiters(Job job) {
+        for (Waiter waiter : job.waiters) {
+            if (generations.isCurrent(waiter.owner, waiter.generation)) {
+                Boolean isSlim = pendingModels.remove(waiter.owner);
+                waiter.miss.onMiss(waiter.owner, isSlim != null ? isSlim : waiter.isSlim);
+            }
+        }
+    }
+
+    /**
+     * Change the model of a skin that is still on its way; false if none is pending for the player
+     */
+    public static boolean updatePendingModel(UUID owner, boolean isSlim) {
+        return pendingModels.computeIfPresent(owner, (uuid, previous) -> isSlim) != null;
+    }
+
+    /**
+     * Forget any skin still on its way for a player, e.g. when the player left or reset
+     */
+    public static void cancel(UUID owner) {
+        generations.next(owner);
+        pendingModels.remove(owner);
+    }
+
+    /**
+     * Drop everything pending, e.g. when leaving a server
+     */
+    public static void clear() {
+        generations.clear();
+        pendingModels.clear();
+        inFlight.clear();
+        if (uploading != null) {
+            uploading.texture.close();
+            uploading = null;
+        }
+        Job next;
+        while ((next = ready.poll()) != null) {
+            if (next.image != null) {
+                next.image.close();
+            }
+        }
+    }
+
+    /**
+     * Skins decoding, waiting for a frame or partly uploaded
+     */
+    public static int getQueuedCount() {
+        return decoding.get() + ready.size() + (uploading != null ? 1 : 0);
+    }
+
+    public static SkinMetrics.Histogram getArrivalToVisible() {
+        return arrivalToVisible;
+    }
+}
@@ -14,11 +14,15 @@ public class ServerSkinManager {
 
     public static class SkinData {
         public final byte[] imageData;
+        public final String hash;
+        public final byte codec;
         public final boolean isSlim;
         public final long timestamp;
 
-        public SkinData(byte[] imageData, boolean isSlim) {
+        public SkinData(byte[] imageData, String hash, byte codec, boolean isSlim) {
             this.imageData = imageData;
+            this.hash = hash;
+            this.codec = codec;
             this.isSlim = isSlim;
             this.timestamp = System.currentTimeMillis();
         }
@@ -27,9 +31,33 @@ public class ServerSkinManager {
     /**
      * Store a player's skin data on the server
      */
-    public static void storeSkin(UUID playerUuid, byte[] imageData, boolean isSlim) {
-        serverSkins.put(playerUuid, new SkinData(imageData, isSlim));
-        NightfallSkin.LOGGER.info("Stored skin for player {} ({} bytes)", playerUuid, imageData.length);
+    public static SkinData storeSkin(UUID playerUuid, String hash, byte[] imageData, byte codec, boolean isSlim) {
+        // Identical images share one blob, keyed by content hash
+        SkinBlobStore.Blob blob = SkinBlobStore.retain(hash, imageData, codec);
+        SkinData skinData = new SkinData(blob.data, blob.hash, blob.codec, isSlim);
+
+        SkinData previous = serverSkins.put(playerUuid, skinData);
+        if (previous != null) {
+            SkinBlobStore.release(previous.hash);
+        }
+
+        NightfallSkin.LOGGER.info("Stored skin for player {} ({} bytes, hash {})", playerUuid, imageData.length, blob.hash);
+        return skinData;
+    }
+
+    /**
+     * Change only the model of a stored skin; the blob is left untouched
+     */
+    public static SkinData updateModel(UUID playerUuid, boolean isSlim) {
+        SkinData current = serverSkins.get(playerUuid);
+        if (current == null) {
+            return null;
+        }
+
+        SkinData updated = new SkinData(current.imageData, current.hash, current.codec, isSlim);
+        serverSkins.put(playerUuid, updated);
+        NightfallSkin.LOGGER.info("Updated model for player {} to {}", playerUuid, isSlim ? "Slim" : "Wide");
+        return updated;
     }
 
     /**
@@ -50,10 +78,20 @@ public class ServerSkinManager {
      * Remove a player's skin
      */
     public static void removeSkin(UUID playerUuid) {
-        serverSkins.remove(playerUuid);
+        SkinData removed = serverSkins.remove(playerUuid);
+        if (removed != null) {
+            SkinBlobStore.release(removed.hash);
+        }
         NightfallSkin.LOGGER.info("Removed skin for player {}", playerUuid);
     }
 
+    /**
+     * Number of players with a stored skin
+     */
+    public static int getSkinCount() {
+        return serverSkins.size();
+    }
+
     /**
      * Get all stored skins
      */
@@ -66,5 +104,6 @@ public class ServerSkinManager {
      */
     public static void clearAllSkins() {
         serverSkins.clear();
+        SkinBlobStore.clear();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package net.kendo.nightfall;
+
+import net.kendo.nightfall.codec.SkinCodecs;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side content-addressed store for skin payloads.
+ * Players wearing the same image share a single blob.
+ */
+public class SkinBlobStore {
+    private static final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    public static class Blob {
+        public final String hash;
+        public final byte[] data;
+        public final byte codec;
+        // Same image re-encoded for peers that don't understand the stored codec
+        private final Map<Byte, byte[]> variants = new ConcurrentHashMap<>();
+        private int refCount;
+
+        Blob(String hash, byte[] data, byte codec) {
+            this.hash = hash;
+            this.data = data;
+            this.codec = codec;
+        }
+
+        /**
+         * The image in the given codec, transcoding once on first use.
+         * Returns null if it cannot be transcoded.
+         */
+        public byte[] getEncoded(byte targetCodec) {
+            if (targetCodec == codec) {
+                return data;
+            }
+            return variants.computeIfAbsent(targetCodec, target -> {
+                try {
+                    return SkinCodecs.transcode(data, codec, target);
+                } catch (Exception e) {
+                    NightfallSkin.LOGGER.error("Failed to transcode skin " + hash, e);
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Keep a ready-made encoding of this blob in another codec
+     */
+    public static void addVariant(Blob blob, byte codec, byte[] data) {
+        if (codec != blob.codec) {
+            blob.variants.putIfAbsent(codec, data);
+        }
+    }
+
+    /**
+     * Add a reference to the blob holding this payload, storing it if it is new.
+     * The hash is computed by the caller, off the server thread.
+     */
+    public static synchronized Blob retain(String hash, byte[] data, byte codec) {
+        Blob blob = blobs.computeIfAbsent(hash, h -> new Blob(h, data, codec));
+        blob.refCount++;
+        return blob;
+    }
+
+    /**
+     * Drop a reference; the blob is forgotten once nobody wears it
+     */
+    public static synchronized void release(String hash) {
+        Blob blob = blobs.get(hash);
+        if (blob != null && --blob.refCount <= 0) {
+            blobs.remove(hash);
+            NightfallSkin.LOGGER.debug("Released skin blob {}", hash);
+        }
+    }
+
+    /**
+     * Look up a blob by content hash
+     */
+    public static Blob get(String hash) {
+        return blobs.get(hash);
+    }
+
+    /**
+     * Number of distinct blobs held
+     */
+    public static int size() {
+        return blobs.size();
+    }
+
+    /**
+     * Total payload bytes held, including transcoded variants
+     */
+    public static long totalBytes() {
+        long total = 0;
+        for (Blob blob : blobs.values()) {
+            total += blob.data.length;
+            for (byte[] variant : blob.variants.values()) {
+                total += variant.length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Clear all blobs
+     */
+    public static synchronized void clear() {
+        blobs.clear();
+    }
+}
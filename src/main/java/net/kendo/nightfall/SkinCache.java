@@ -0,0 +1,202 @@
+package net.kendo.nightfall;
+
+import net.minecraft.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client-side disk cache of skins received from servers, keyed by content hash.
+ * Files hold the codec id followed by the payload. Eviction is least recently used,
+ * bounded by total bytes; file modification times carry the recency across restarts.
+ */
+public class SkinCache {
+    private static final File CACHE_DIR = new File("skinchanger_cache", "remote");
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+    private static final String SUFFIX = ".skin";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private static final Map<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalBytes = 0;
+    private static boolean loaded = false;
+
+    public static class CachedSkin {
+        public final byte[] data;
+        public final byte codec;
+
+        CachedSkin(byte[] data, byte codec) {
+            this.data = data;
+            this.codec = codec;
+        }
+    }
+
+    private static synchronized void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+
+        // Writes cut short by a crash or exit never made it into the index
+        File[] leftovers = CACHE_DIR.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                leftover.delete();
+            }
+        }
+
+        File[] files = CACHE_DIR.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+
+        // Oldest first, so the access order matches last use
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String hash = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+            if (!SkinHash.isValid(hash)) continue;
+            entries.put(hash, file.length());
+            totalBytes += file.length();
+        }
+        deleteFiles(evict());
+
+        NightfallSkin.LOGGER.info("Loaded skin cache: {} skins, {} KB", entries.size(), totalBytes / 1024);
+    }
+
+    /**
+     * Load a cached skin, or null if we don't have it (or the file no longer matches its hash).
+     * Reads and hashes the file, so keep it off the render thread.
+     */
+    public static CachedSkin get(String hash) {
+        // Hashes come from the server and name files, so only accept real ones
+        if (!SkinHash.isValid(hash)) return null;
+
+        synchronized (SkinCache.class) {
+            ensureLoaded();
+            // get() also marks the entry as recently used
+            if (entries.get(hash) == null) return null;
+        }
+
+        File file = fileFor(hash);
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < 2) {
+                throw new IOException("Truncated cache entry");
+            }
+            byte[] data = Arrays.copyOfRange(bytes, 1, bytes.length);
+            if (!SkinHash.of(data).equals(hash)) {
+                throw new IOException("Corrupt cache entry");
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return new CachedSkin(data, bytes[0]);
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.warn("Dropping unreadable cached skin {}: {}", hash, e.getMessage());
+            remove(hash);
+            return null;
+        }
+    }
+
+    /**
+     * Whether the index lists a skin, without touching its file. The index is read from disk on first use;
+     * the client does that off-thread at join (see SkinNetworkHandler.onClientJoin).
+     */
+    public static synchronized boolean contains(String hash) {
+        ensureLoaded();
+        return entries.containsKey(hash);
+    }
+
+    /**
+     * Store a received skin. Everything, including the index update and eviction, happens on the
+     * IO worker: the file is written under a temporary name and moved into place, and only then
+     * indexed, so get() never sees a listed skin whose file is missing or half-written.
+     */
+    public static void put(String hash, byte[] data, byte codec) {
+        if (!SkinHash.isValid(hash)) return;
+
+        Util.getIoWorkerExecutor().execute(() -> {
+            if (contains(hash)) return;
+
+            Path temp = null;
+            try {
+                Files.createDirectories(CACHE_DIR.toPath());
+                byte[] bytes = new byte[data.length + 1];
+                bytes[0] = codec;
+                System.arraycopy(data, 0, bytes, 1, data.length);
+
+                temp = Files.createTempFile(CACHE_DIR.toPath(), hash, TEMP_SUFFIX);
+                Files.write(temp, bytes);
+                Files.move(temp, fileFor(hash).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (Exception e) {
+                NightfallSkin.LOGGER.error("Failed to cache skin " + hash, e);
+                if (temp != null) {
+                    temp.toFile().delete();
+                }
+                return;
+            }
+
+            List<String> evicted;
+            synchronized (SkinCache.class) {
+                if (entries.containsKey(hash)) return;
+                long size = data.length + 1L;
+                entries.put(hash, size);
+                totalBytes += size;
+                evicted = evict();
+            }
+            deleteFiles(evicted);
+        });
+    }
+
+    /**
+     * Hashes of every cached skin, most recently used first
+     */
+    public static synchronized List<String> getHashes() {
+        ensureLoaded();
+        List<String> hashes = new ArrayList<>(entries.keySet());
+        Collections.reverse(hashes);
+        return hashes;
+    }
+
+    /**
+     * Forget a cached skin and delete its file, e.g. when it turned out to be unusable
+     */
+    static synchronized void remove(String hash) {
+        Long size = entries.remove(hash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        fileFor(hash).delete();
+    }
+
+    /**
+     * Drop least recently used entries until under the size bound; returns their hashes,
+     * whose files the caller deletes once it has let go of the lock
+     */
+    private static List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private static void deleteFiles(List<String> hashes) {
+        for (String hash : hashes) {
+            fileFor(hash).delete();
+        }
+    }
+
+    private static File fileFor(String hash) {
+        return new File(CACHE_DIR, hash + SUFFIX);
+    }
+}
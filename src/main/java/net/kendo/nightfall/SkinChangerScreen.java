@@ -2,6 +2,8 @@ package net.kendo.nightfall;
 
 import net.kendo.nightfall.ModelPreferenceManager;
 import net.kendo.nightfall.Network.SkinNetworkHandler;
+import net.kendo.nightfall.Network.SkinUploadPipeline;
+import net.kendo.nightfall.codec.PngSkinCodec;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
@@ -9,11 +11,15 @@ import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SkinChangerScreen extends Screen {
     private static final int DROP_ZONE_WIDTH = 350;
@@ -31,6 +37,12 @@ public class SkinChangerScreen extends Screen {
     private int historyScroll = 0;
     private int maxHistoryScroll = 0;
 
+    // History preview textures this screen holds one reference to each, by skin hash
+    private final Map<String, Identifier> previewTextures = new HashMap<>();
+    // Hash of each history entry's file; entries are recreated when a skin is re-applied
+    private final Map<SkinHistory.SkinEntry, String> previewHashes = new HashMap<>();
+    private final Set<SkinHistory.SkinEntry> failedPreviews = new HashSet<>();
+
     private TextFieldWidget urlTextField;
     private boolean isLoadingFromUrl = false;
     private int selectedResolution = 512;
@@ -103,10 +115,8 @@ public class SkinChangerScreen extends Screen {
 
             if (SkinManager.getCurrentCustomSkin() != null) {
                 try {
-                    SkinManager.SkinData currentSkin = SkinManager.getSkinData(client.player.getUuid());
-                    if (currentSkin != null && currentSkin.imageData != null) {
-                        BufferedImage skinImage = ImageIO.read(new java.io.ByteArrayInputStream(currentSkin.imageData));
-                        SkinManager.applySkin(client, skinImage, isSlimModel);
+                    // Only the model flag changes - no re-encode, new texture or re-upload
+                    if (SkinManager.setLocalModel(client, isSlimModel)) {
                         statusMessage = "Model changed to " + (isSlimModel ? "Slim" : "Wide") + "!";
                         statusColor = 0x00FF00;
                     }
@@ -279,11 +289,35 @@ public class SkinChangerScreen extends Screen {
                     this.width / 2, dropZoneY + DROP_ZONE_HEIGHT - 15, 0xFFFFFF);
         }
 
+        drawUploadStatus(context, dropZoneY + 8);
+
         urlTextField.render(context, mouseX, mouseY, delta);
         context.drawTextWithShadow(this.textRenderer, "Skin URL:",
                 dropZoneX + 10, dropZoneY + DROP_ZONE_HEIGHT + 18, 0xFFFFFF);
     }
 
+    /**
+     * Progress of the background skin upload, if one has run this session
+     */
+    private void drawUploadStatus(DrawContext context, int y) {
+        SkinUploadPipeline.Status upload = SkinUploadPipeline.getStatus();
+        if (upload.stage == SkinUploadPipeline.Stage.IDLE) {
+            return;
+        }
+
+        String text = upload.message;
+        int color = 0xFFFF00;
+        if (upload.stage == SkinUploadPipeline.Stage.UPLOADING && upload.uploadBytes > 0) {
+            long sent = Math.max(0, upload.uploadBytes - SkinNetworkHandler.getPendingUploadBytes());
+            text += " " + (sent * 100 / upload.uploadBytes) + "%";
+        } else if (upload.stage == SkinUploadPipeline.Stage.DONE) {
+            color = 0x00FF00;
+        } else if (upload.stage == SkinUploadPipeline.Stage.FAILED) {
+            color = 0xFF0000;
+        }
+        context.drawCenteredTextWithShadow(this.textRenderer, text, this.width / 2, y, color);
+    }
+
     private void drawHistoryPanel(DrawContext context, int mouseX, int mouseY) {
         int panelX = 10;
         int panelY = 40;
@@ -309,52 +343,10 @@ public class SkinChangerScreen extends Screen {
             int bgColor = hovered ? 0xFF444444 : 0xFF222222;
             context.fill(panelX + 5, itemY, panelX + HISTORY_WIDTH - 5, itemY + HISTORY_ITEM_HEIGHT, bgColor);
 
-            // Load texture preview if needed
-            Identifier textureId = entry.getTextureId();
-
-            // Check if texture exists by accessing the internal map directly (no loading attempt)
-            boolean textureExists = false;
-            if (textureId != null) {
-                try {
-                    // Access the texture map directly without triggering a load
-                    java.lang.reflect.Field texturesField = client.getTextureManager().getClass().getDeclaredField("textures");
-                    texturesField.setAccessible(true);
-                    @SuppressWarnings("unchecked")
-                    java.util.Map<Identifier, net.minecraft.client.texture.AbstractTexture> textures =
-                            (java.util.Map<Identifier, net.minecraft.client.texture.AbstractTexture>) texturesField.get(client.getTextureManager());
-
-                    net.minecraft.client.texture.AbstractTexture texture = textures.get(textureId);
-                    textureExists = (texture != null && texture instanceof net.minecraft.client.texture.NativeImageBackedTexture);
-                } catch (Exception e) {
-                    // Reflection failed, texture doesn't exist
-                    textureExists = false;
-                }
-            }
-
-            // Load texture if it doesn't exist
-            if (!textureExists) {
-                try {
-                    if (entry.getFile().exists()) {
-                        BufferedImage skinImage = ImageIO.read(entry.getFile());
-                        if (skinImage != null) {
-                            // Create unique texture ID for this specific entry
-                            Identifier newTextureId = new Identifier("skinchanger",
-                                    "history_preview_" + entry.getFile().getName().hashCode() + "_" + System.currentTimeMillis());
-                            net.minecraft.client.texture.NativeImage nativeImage = convertToNativeImage(skinImage);
-                            net.minecraft.client.texture.NativeImageBackedTexture texture =
-                                    new net.minecraft.client.texture.NativeImageBackedTexture(nativeImage);
-                            client.getTextureManager().registerTexture(newTextureId, texture);
-                            entry.setTextureId(newTextureId);
-                            textureId = newTextureId;
-                            textureExists = true;
-                        }
-                    }
-                } catch (Exception ex) {
-                    NightfallSkin.LOGGER.debug("Could not load history preview texture for {}", entry.getFileName());
-                    textureId = null;
-                    textureExists = false;
-                }
-            }
+            // Preview texture, shared through the registry with any skin made from the same bytes
+            String previewHash = previewHashes.get(entry);
+            Identifier textureId = previewHash != null ? previewTextures.get(previewHash) : loadPreview(entry);
+            boolean textureExists = textureId != null;
 
             // Render texture or placeholder
             if (textureExists && textureId != null) {
@@ -393,26 +385,32 @@ public class SkinChangerScreen extends Screen {
         }
     }
 
-    private net.minecraft.client.texture.NativeImage convertToNativeImage(BufferedImage bufferedImage) {
-        int width = bufferedImage.getWidth();
-        int height = bufferedImage.getHeight();
-
-        net.minecraft.client.texture.NativeImage nativeImage =
-                new net.minecraft.client.texture.NativeImage(width, height, true);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = bufferedImage.getRGB(x, y);
-                int alpha = (rgb >> 24) & 0xFF;
-                int red = (rgb >> 16) & 0xFF;
-                int green = (rgb >> 8) & 0xFF;
-                int blue = rgb & 0xFF;
-                int abgr = (alpha << 24) | (blue << 16) | (green << 8) | red;
-                nativeImage.setColor(x, y, abgr);
+    /**
+     * Find or take a texture reference for a history entry's preview; null if the file can't be read.
+     * Entries with the same bytes share one reference.
+     */
+    private Identifier loadPreview(SkinHistory.SkinEntry entry) {
+        if (failedPreviews.contains(entry) || !entry.getFile().exists()) {
+            return null;
+        }
+        try {
+            byte[] data = Files.readAllBytes(entry.getFile().toPath());
+            String hash = SkinHash.of(data);
+            Identifier textureId = previewTextures.get(hash);
+            if (textureId == null) {
+                textureId = SkinTextureRegistry.acquire(hash);
+                if (textureId == null) {
+                    textureId = SkinTextureRegistry.register(hash, SkinImages.readPng(data));
+                }
+                previewTextures.put(hash, textureId);
             }
+            previewHashes.put(entry, hash);
+            return textureId;
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.debug("Could not load history preview texture for {}", entry.getFileName());
+            failedPreviews.add(entry);
+            return null;
         }
-
-        return nativeImage;
     }
 
     @Override
@@ -557,11 +555,14 @@ public class SkinChangerScreen extends Screen {
                 return false;
             }
 
-            BufferedImage image = ImageIO.read(file);
-            if (image == null) return false;
-
-            int width = image.getWidth();
-            int height = image.getHeight();
+            // Only the header is read; the pixels are decoded once, when the skin is applied
+            byte[] header;
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                header = in.readNBytes(PngSkinCodec.HEADER_SIZE);
+            }
+            int[] size = PngSkinCodec.readSize(header);
+            int width = size[0];
+            int height = size[1];
 
             if (width != height) return false;
             if (width < 64 || width > 512) return false;
@@ -575,15 +576,10 @@ public class SkinChangerScreen extends Screen {
 
     private void applySkin(File skinFile) {
         try {
-            BufferedImage skinImage = ImageIO.read(skinFile);
-            if (skinImage == null) {
-                statusMessage = "Failed to read image!";
-                statusColor = 0xFF0000;
-                return;
-            }
+            byte[] skinData = Files.readAllBytes(skinFile.toPath());
 
             // Use the current model preference (which is now always synced with ModelPreferenceManager)
-            Identifier textureId = SkinManager.applySkin(client, skinImage, isSlimModel);
+            Identifier textureId = SkinManager.applySkin(client, skinData, isSlimModel);
 
             SkinHistory.addSkin(skinFile, textureId, isSlimModel);
 
@@ -603,6 +599,13 @@ public class SkinChangerScreen extends Screen {
 
     @Override
     public void removed() {
+        // Previews are only needed while the screen is open
+        for (Identifier textureId : previewTextures.values()) {
+            SkinTextureRegistry.release(textureId);
+        }
+        previewTextures.clear();
+        previewHashes.clear();
+
         // Restore previous GUI scale when closing
         if (previousGuiScale != -1) {
             client.options.getGuiScale().setValue(previousGuiScale);
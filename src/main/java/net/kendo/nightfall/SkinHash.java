@@ -0,0 +1,44 @@
+package net.kendo.nightfall;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content hashes used to identify skin payloads on both sides
+ */
+public class SkinHash {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Hash a skin payload (SHA-1, lowercase hex)
+     */
+    public static String of(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            char[] out = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                out[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                out[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(out);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Whether a string looks like a hash produced by {@link #of(byte[])}
+     */
+    public static boolean isValid(String hash) {
+        if (hash == null || hash.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -107,12 +107,10 @@ public class SkinHistory {
 
                         // Only add if file still exists
                         if (file.exists()) {
-                            // Create a temporary texture ID (will be regenerated when applied)
-                            Identifier textureId = new Identifier("skinchanger", "history_" + System.nanoTime());
-
+                            // Preview textures come from SkinTextureRegistry when the history is shown
                             SkinEntry entry = new SkinEntry(
                                     file,
-                                    textureId,
+                                    null,
                                     serializable.isSlim,
                                     Instant.ofEpochMilli(serializable.timestamp)
                             );
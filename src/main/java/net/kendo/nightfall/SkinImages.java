@@ -0,0 +1,125 @@
+package net.kendo.nightfall;
+
+import net.kendo.nightfall.codec.PngSkinCodec;
+import net.kendo.nightfall.codec.SkinCodec;
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.kendo.nightfall.codec.SkinLayout;
+import net.kendo.nightfall.codec.SkinPixels;
+import net.kendo.nightfall.mixin.NativeImageAccessor;
+import net.minecraft.client.texture.NativeImage;
+import org.lwjgl.system.MemoryUtil;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Turns skin payloads and images into NativeImages.
+ *
+ * PNGs are decoded by the game's own decoder straight into off-heap memory, so no
+ * BufferedImage is made; other codecs decode to raw pixels, which are copied in bulk.
+ *
+ * NativeImage keeps RGBA bytes off-heap, which read as one ABGR int per pixel in native order -
+ * exactly what {@link NativeImage#setColor} writes one call at a time. Here each ARGB pixel is
+ * swizzled and stored straight into that memory, without setColor's per-call checks.
+ */
+public class SkinImages {
+    // Largest skin texture we create from a payload
+    private static final int MAX_SIZE = 1024;
+
+    /**
+     * Decode a skin payload in any wire codec into a new NativeImage
+     */
+    public static NativeImage decode(byte[] data, byte codec) throws IOException {
+        if (codec == SkinCodecs.PNG) {
+            return readPng(data);
+        }
+        SkinCodec skinCodec = SkinCodecs.get(codec);
+        if (skinCodec == null) {
+            throw new IOException("Unknown skin codec " + codec);
+        }
+        return toNativeImage(skinCodec.decode(data));
+    }
+
+    /**
+     * Decode PNG bytes into a new RGBA NativeImage, checking the size from the header first
+     */
+    public static NativeImage readPng(byte[] data) throws IOException {
+        int[] size = PngSkinCodec.readSize(data);
+        if (!SkinLayout.isSkinLayout(size[0], size[1]) || size[0] > MAX_SIZE) {
+            throw new IOException("Invalid skin dimensions: " + size[0] + "x" + size[1]);
+        }
+
+        ByteBuffer buffer = MemoryUtil.memAlloc(data.length);
+        try {
+            buffer.put(data).flip();
+            return NativeImage.read(NativeImage.Format.RGBA, buffer);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    /**
+     * Convert an image to a new NativeImage, reading the raster in one pass
+     */
+    public static NativeImage toNativeImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int[] argb;
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                && buffer.getNumBanks() == 1 && buffer.getOffset() == 0 && buffer.getSize() == width * height) {
+            // Non-premultiplied ARGB laid out row by row - use the backing array as is
+            argb = buffer.getData();
+        } else {
+            argb = image.getRGB(0, 0, width, height, null, 0, width);
+        }
+        return toNativeImage(width, height, argb);
+    }
+
+    public static NativeImage toNativeImage(SkinPixels pixels) {
+        return toNativeImage(pixels.width, pixels.height, pixels.argb);
+    }
+
+    private static NativeImage toNativeImage(int width, int height, int[] argb) {
+        NativeImage nativeImage = new NativeImage(NativeImage.Format.RGBA, width, height, true);
+        try {
+            writeArgb(nativeImage, argb);
+        } catch (RuntimeException e) {
+            nativeImage.close();
+            throw e;
+        }
+        return nativeImage;
+    }
+
+    /**
+     * Overwrite every pixel of an RGBA NativeImage with row-major ARGB pixels
+     */
+    public static void writeArgb(NativeImage nativeImage, int[] argb) {
+        int pixelCount = nativeImage.getWidth() * nativeImage.getHeight();
+        if (nativeImage.getFormat() != NativeImage.Format.RGBA || argb.length < pixelCount) {
+            throw new IllegalArgumentException("Expected " + pixelCount + " pixels for an RGBA image, got "
+                    + argb.length + " (" + nativeImage.getFormat() + ")");
+        }
+
+        long pointer = ((NativeImageAccessor) (Object) nativeImage).getPointerAccessor();
+        if (pointer == 0L) {
+            throw new IllegalStateException("Image is not allocated");
+        }
+
+        putAbgr(argb, pixelCount, MemoryUtil.memIntBuffer(pointer, pixelCount));
+    }
+
+    /**
+     * Write the first pixelCount ARGB pixels to target as ABGR
+     */
+    public static void putAbgr(int[] argb, int pixelCount, IntBuffer target) {
+        for (int i = 0; i < pixelCount; i++) {
+            int px = argb[i];
+            // Swap red and blue; alpha and green stay in place
+            target.put(i, (px & 0xFF00FF00) | ((px >> 16) & 0xFF) | ((px & 0xFF) << 16));
+        }
+    }
+}
@@ -2,17 +2,18 @@ package net.kendo.nightfall;
 
 import com.mojang.authlib.GameProfile;
 import net.kendo.nightfall.Network.SkinNetworkHandler;
+import net.kendo.nightfall.codec.SkinCodecs;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.texture.NativeImage;
-import net.minecraft.client.texture.NativeImageBackedTexture;
 import net.minecraft.util.Identifier;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.URL;
+import java.nio.file.Files;
 import java.net.HttpURLConnection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -23,17 +24,22 @@ public class SkinManager {
 
     // Current player's skin info
     private static Identifier currentCustomSkin = null;
+    private static UUID currentSkinOwner = null;
     private static boolean currentIsSlim = false;
 
     public static class SkinData {
         public final Identifier textureId;
         public final boolean isSlim;
         public final byte[] imageData; // Store for network transmission
+        public final String hash; // Content hash of imageData
+        public final byte codec; // How imageData is encoded
 
-        public SkinData(Identifier textureId, boolean isSlim, byte[] imageData) {
+        public SkinData(Identifier textureId, boolean isSlim, byte[] imageData, String hash, byte codec) {
             this.textureId = textureId;
             this.isSlim = isSlim;
             this.imageData = imageData;
+            this.hash = hash;
+            this.codec = codec;
         }
     }
 
@@ -161,7 +167,7 @@ public class SkinManager {
     }
 
     /**
-     * Apply skin for the local player (called from GUI)
+     * Apply skin for the local player from an image that is already decoded (URL downloads)
      */
     public static Identifier applySkin(MinecraftClient client, BufferedImage skinImage, boolean isSlim) {
         try {
@@ -172,29 +178,34 @@ public class SkinManager {
             ImageIO.write(skinImage, "PNG", baos);
             byte[] imageData = baos.toByteArray();
 
-            NativeImage nativeImage = convertToNativeImage(skinImage);
-            Identifier textureId = new Identifier("skinchanger", "skin_" + System.currentTimeMillis());
-
-            // Register texture
-            NativeImageBackedTexture texture = new NativeImageBackedTexture(nativeImage);
-            client.getTextureManager().registerTexture(textureId, texture);
-
-            // Store for local player
-            UUID playerUuid = client.player.getUuid();
-            customSkins.put(playerUuid, new SkinData(textureId, isSlim, imageData));
+            String hash = SkinHash.of(imageData);
+            Identifier textureId = SkinTextureRegistry.acquire(hash);
+            if (textureId == null) {
+                textureId = SkinTextureRegistry.register(hash, SkinImages.toNativeImage(skinImage));
+            }
+            return applyLocalSkin(client, textureId, imageData, hash, isSlim);
 
-            // Save current skin info
-            currentCustomSkin = textureId;
-            currentIsSlim = isSlim;
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to apply skin", e);
+            throw new RuntimeException("Failed to apply skin: " + e.getMessage());
+        }
+    }
 
-            NightfallSkin.LOGGER.info("Applied custom skin locally: {} (Model: {})", textureId, (isSlim ? "Slim" : "Classic"));
+    /**
+     * Apply skin for the local player from PNG file contents (called from GUI).
+     * The bytes are decoded straight into the texture and uploaded as they are.
+     */
+    public static Identifier applySkin(MinecraftClient client, byte[] pngData, boolean isSlim) {
+        try {
+            if (client.player == null) return null;
 
-            // Send to server if in multiplayer
-            if (client.getNetworkHandler() != null) {
-                sendSkinToServer(client, imageData, isSlim);
+            // Same bytes as a skin already on screen (often the history preview) - share its texture
+            String hash = SkinHash.of(pngData);
+            Identifier textureId = SkinTextureRegistry.acquire(hash);
+            if (textureId == null) {
+                textureId = SkinTextureRegistry.register(hash, SkinImages.readPng(pngData));
             }
-
-            return textureId;
+            return applyLocalSkin(client, textureId, pngData, hash, isSlim);
 
         } catch (Exception e) {
             NightfallSkin.LOGGER.error("Failed to apply skin", e);
@@ -202,6 +213,55 @@ public class SkinManager {
         }
     }
 
+    /**
+     * Wear a texture we hold a reference to; the reference moves to the local player's skin
+     */
+    private static Identifier applyLocalSkin(MinecraftClient client, Identifier textureId, byte[] imageData, String hash, boolean isSlim) {
+        // Store for local player, then let go of the texture it replaces
+        UUID playerUuid = client.player.getUuid();
+        currentSkinOwner = playerUuid;
+        SkinData oldSkin = customSkins.put(playerUuid, new SkinData(textureId, isSlim, imageData, hash, SkinCodecs.PNG));
+        if (oldSkin != null) {
+            SkinTextureRegistry.release(oldSkin.textureId);
+        }
+
+        // Save current skin info
+        currentCustomSkin = textureId;
+        currentIsSlim = isSlim;
+
+        NightfallSkin.LOGGER.info("Applied custom skin locally: {} (Model: {})", textureId, (isSlim ? "Slim" : "Classic"));
+
+        // Send to server if in multiplayer
+        if (client.getNetworkHandler() != null) {
+            sendSkinToServer(client, imageData, isSlim);
+        }
+
+        return textureId;
+    }
+
+    /**
+     * Re-apply the most recent skin from history with the saved model preference
+     */
+    public static void autoApplyLastSkin(MinecraftClient client) {
+        SkinHistory.SkinEntry lastSkin = SkinHistory.getMostRecentSkin();
+        if (lastSkin == null || !lastSkin.getFile().exists()) {
+            NightfallSkin.LOGGER.info("No previous skin to apply");
+            return;
+        }
+
+        try {
+            NightfallSkin.LOGGER.info("Auto-applying last used skin: {}", lastSkin.getDisplayName());
+            byte[] skinData = Files.readAllBytes(lastSkin.getFile().toPath());
+            // Use the saved model preference instead of the skin's stored model
+            boolean useSlim = ModelPreferenceManager.isSlimPreference();
+            applySkin(client, skinData, useSlim);
+            NightfallSkin.LOGGER.info("Successfully reapplied skin on startup with model: {}",
+                    useSlim ? "Slim" : "Wide");
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to auto-apply last skin", e);
+        }
+    }
+
     /**
      * Send skin to server
      */
@@ -220,41 +280,106 @@ public class SkinManager {
     }
 
     /**
-     * Apply skin received from another player via network
+     * Apply skin received from another player via network (client thread).
+     * Players wearing the same image share one texture: if it is already live it is used right away,
+     * otherwise it is decoded off-thread and shows up within a few frames.
      */
-    public static void applyRemoteSkin(MinecraftClient client, UUID playerUuid, byte[] imageData, boolean isSlim) {
-        try {
-            BufferedImage skinImage = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (skinImage == null) {
-                NightfallSkin.LOGGER.error("Failed to decode remote skin image");
-                return;
-            }
+    public static void applyRemoteSkin(UUID playerUuid, String hash, byte[] imageData, byte codec, boolean isSlim, long arrivedNanos) {
+        Identifier textureId = SkinTextureRegistry.acquire(hash);
+        if (textureId != null) {
+            // Anything still decoding for this player is older than this
+            RemoteSkinLoader.cancel(playerUuid);
+            wearRemoteTexture(playerUuid, textureId, hash, imageData, codec, isSlim);
+            return;
+        }
+        RemoteSkinLoader.submit(playerUuid, hash, imageData, codec, isSlim, arrivedNanos);
+    }
 
-            NativeImage nativeImage = convertToNativeImage(skinImage);
-            Identifier textureId = new Identifier("skinchanger", "remote_" + playerUuid.toString().replace("-", ""));
+    /**
+     * Apply a skin the disk cache holds (client thread). The file is read and decoded off-thread;
+     * if it can't be read after all, the miss callback runs instead.
+     */
+    public static void applyCachedSkin(UUID playerUuid, String hash, boolean isSlim, long arrivedNanos, RemoteSkinLoader.CacheMiss miss) {
+        RemoteSkinLoader.submitCached(playerUuid, hash, isSlim, arrivedNanos, miss);
+    }
 
-            // Cleanup old texture if exists
-            SkinData oldSkin = customSkins.get(playerUuid);
-            if (oldSkin != null && oldSkin.textureId != null) {
-                try {
-                    client.getTextureManager().destroyTexture(oldSkin.textureId);
-                } catch (Exception e) {
-                    // Ignore cleanup errors
-                }
+    /**
+     * Put a texture we hold a reference to on a remote player, releasing the one it replaces (render thread).
+     * The new texture is in place before the old one is released, so there is no frame without a skin.
+     */
+    static void wearRemoteTexture(UUID playerUuid, Identifier textureId, String hash, byte[] imageData, byte codec, boolean isSlim) {
+        SkinData oldSkin = customSkins.put(playerUuid, new SkinData(textureId, isSlim, imageData, hash, codec));
+        if (oldSkin != null) {
+            SkinTextureRegistry.release(oldSkin.textureId);
+        }
+
+        NightfallSkin.LOGGER.info("Applied remote skin for player {}: {} (Slim: {})",
+                playerUuid, textureId, isSlim);
+    }
+
+    /**
+     * A remote player left or reset their skin - drop it and let go of its texture
+     */
+    public static void removeRemoteSkin(MinecraftClient client, UUID playerUuid) {
+        // Our own skin is only changed from here, never by the server
+        if (client.player != null && client.player.getUuid().equals(playerUuid)) {
+            return;
+        }
+
+        RemoteSkinLoader.cancel(playerUuid);
+        SkinData oldSkin = customSkins.remove(playerUuid);
+        if (oldSkin != null) {
+            SkinTextureRegistry.release(oldSkin.textureId);
+            NightfallSkin.LOGGER.info("Removed remote skin for player {}", playerUuid);
+        }
+    }
+
+    /**
+     * Drop every remote player's skin, e.g. when leaving a server
+     */
+    public static void clearRemoteSkins() {
+        // The player may already be gone when this runs, so the local entry is found by its recorded owner
+        Iterator<Map.Entry<UUID, SkinData>> iterator = customSkins.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, SkinData> entry = iterator.next();
+            if (!entry.getKey().equals(currentSkinOwner)) {
+                iterator.remove();
+                SkinTextureRegistry.release(entry.getValue().textureId);
             }
+        }
+    }
+
+    /**
+     * Switch the local player's model without touching the texture or re-uploading pixels
+     */
+    public static boolean setLocalModel(MinecraftClient client, boolean isSlim) {
+        if (client.player == null) return false;
 
-            // Register new texture
-            NativeImageBackedTexture texture = new NativeImageBackedTexture(nativeImage);
-            client.getTextureManager().registerTexture(textureId, texture);
+        UUID playerUuid = client.player.getUuid();
+        SkinData current = customSkins.get(playerUuid);
+        if (current == null) return false;
 
-            // Store skin data
-            customSkins.put(playerUuid, new SkinData(textureId, isSlim, imageData));
+        customSkins.put(playerUuid, new SkinData(current.textureId, isSlim, current.imageData, current.hash, current.codec));
+        currentIsSlim = isSlim;
 
-            NightfallSkin.LOGGER.info("Applied remote skin for player {}: {} (Slim: {})",
-                    playerUuid, textureId, isSlim);
+        NightfallSkin.LOGGER.info("Changed local model to {}", isSlim ? "Slim" : "Classic");
 
-        } catch (Exception e) {
-            NightfallSkin.LOGGER.error("Failed to apply remote skin for player " + playerUuid, e);
+        if (client.getNetworkHandler() != null && !SkinNetworkHandler.sendModelUpdate(isSlim)) {
+            // Server can't take model-only updates, send the whole skin again
+            sendSkinToServer(client, current.imageData, isSlim);
+        }
+        return true;
+    }
+
+    /**
+     * Switch another player's model, keeping their texture
+     */
+    public static void updateRemoteModel(UUID playerUuid, boolean isSlim) {
+        RemoteSkinLoader.updatePendingModel(playerUuid, isSlim);
+        SkinData current = customSkins.get(playerUuid);
+        if (current != null && current.isSlim != isSlim) {
+            customSkins.put(playerUuid, new SkinData(current.textureId, isSlim, current.imageData, current.hash, current.codec));
+            NightfallSkin.LOGGER.info("Updated model for player {} to {}", playerUuid, isSlim ? "Slim" : "Classic");
         }
     }
 
@@ -266,18 +391,12 @@ public class SkinManager {
 
         UUID playerUuid = client.player.getUuid();
 
-        // Cleanup texture
-        if (currentCustomSkin != null) {
-            try {
-                client.getTextureManager().destroyTexture(currentCustomSkin);
-            } catch (Exception e) {
-                // Ignore
-            }
-            currentCustomSkin = null;
+        // Remove from map and let go of the texture
+        SkinData oldSkin = customSkins.remove(playerUuid);
+        if (oldSkin != null) {
+            SkinTextureRegistry.release(oldSkin.textureId);
         }
-
-        // Remove from map
-        customSkins.remove(playerUuid);
+        currentCustomSkin = null;
         currentIsSlim = false;
 
         NightfallSkin.LOGGER.info("Reset to default skin");
@@ -337,38 +456,24 @@ public class SkinManager {
     }
 
     /**
-     * Convert BufferedImage to NativeImage
+     * Find a skin we already hold with the given content hash
      */
-    private static NativeImage convertToNativeImage(BufferedImage bufferedImage) {
-        int width = bufferedImage.getWidth();
-        int height = bufferedImage.getHeight();
-
-        NativeImage nativeImage = new NativeImage(width, height, true);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = bufferedImage.getRGB(x, y);
-
-                // Extract ARGB components
-                int alpha = (rgb >> 24) & 0xFF;
-                int red = (rgb >> 16) & 0xFF;
-                int green = (rgb >> 8) & 0xFF;
-                int blue = rgb & 0xFF;
-
-                // NativeImage uses ABGR format
-                int abgr = (alpha << 24) | (blue << 16) | (green << 8) | red;
-
-                nativeImage.setColor(x, y, abgr);
+    public static SkinData findSkinByHash(String hash) {
+        for (SkinData skinData : customSkins.values()) {
+            if (hash.equals(skinData.hash)) {
+                return skinData;
             }
         }
-
-        return nativeImage;
+        return null;
     }
 
     /**
      * Clear all custom skins (for cleanup)
      */
     public static void clearAllSkins() {
+        for (SkinData skinData : customSkins.values()) {
+            SkinTextureRegistry.release(skinData.textureId);
+        }
         customSkins.clear();
         currentCustomSkin = null;
         currentIsSlim = false;
@@ -0,0 +1,80 @@
+package net.kendo.nightfall;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+
+/**
+ * Bandwidth and texture upload limits for skin traffic, read from skinchanger_network.json
+ */
+public class SkinNetworkConfig {
+    private static final File CONFIG_FILE = new File("skinchanger_network.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // Smallest budget we accept, so a bad value can't stall skin sync entirely
+    private static final int MIN_BYTES_PER_TICK = 1024;
+
+    private static NetworkConfig config = new NetworkConfig();
+
+    static {
+        loadConfig();
+    }
+
+    public static class NetworkConfig {
+        // Skin bytes the server writes to each connection per tick (20 ticks per second)
+        int serverBytesPerTick = 128 * 1024;
+        // Skin bytes the client uploads per tick
+        int clientBytesPerTick = 32 * 1024;
+        // Render time the client spends per frame turning received skins into textures
+        int textureUploadMicrosPerFrame = 2000;
+    }
+
+    public static int getServerBytesPerTick() {
+        return Math.max(MIN_BYTES_PER_TICK, config.serverBytesPerTick);
+    }
+
+    public static int getClientBytesPerTick() {
+        return Math.max(MIN_BYTES_PER_TICK, config.clientBytesPerTick);
+    }
+
+    public static int getTextureUploadMicrosPerFrame() {
+        return Math.max(0, config.textureUploadMicrosPerFrame);
+    }
+
+    /**
+     * Write the defaults out so there is a file to edit
+     */
+    private static void saveConfig() {
+        try {
+            try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
+                GSON.toJson(config, writer);
+            }
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to save network config", e);
+        }
+    }
+
+    private static void loadConfig() {
+        try {
+            if (!CONFIG_FILE.exists()) {
+                NightfallSkin.LOGGER.info("No network config found, writing defaults");
+                saveConfig();
+                return;
+            }
+
+            try (FileReader reader = new FileReader(CONFIG_FILE)) {
+                NetworkConfig loaded = GSON.fromJson(reader, NetworkConfig.class);
+                if (loaded != null) {
+                    config = loaded;
+                    NightfallSkin.LOGGER.info("Loaded network config: server {} B/tick, client {} B/tick",
+                            getServerBytesPerTick(), getClientBytesPerTick());
+                }
+            }
+        } catch (Exception e) {
+            NightfallSkin.LOGGER.error("Failed to load network config", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.kendo.nightfall;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import net.kendo.nightfall.Network.SkinMetrics;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+/**
+ * /skinstats - operator view of skin sync traffic and memory
+ */
+public class SkinStatsCommand {
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal("skinstats")
+                .requires(source -> source.hasPermissionLevel(2))
+                .executes(SkinStatsCommand::execute));
+    }
+
+    private static int execute(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        SkinMetrics metrics = SkinMetrics.get();
+
+        send(source, String.format("Skins: %d stored, %d blobs, %s held",
+                metrics.getStoredSkins(), metrics.getStoredBlobs(), formatBytes(metrics.getHeldBytes())));
+        send(source, String.format("Traffic: %s received, %s sent, %s queued",
+                formatBytes(metrics.getBytesReceived()), formatBytes(metrics.getBytesSent()),
+                formatBytes(metrics.getQueuedSendBytes())));
+        send(source, String.format("Uploads: %d in flight, %d completed, %d failed (%d rejected, %d expired, %d incomplete, %d invalid)",
+                metrics.getTransfersInFlight(), metrics.getTransfersCompleted(), metrics.getTransfersFailed(),
+                metrics.getTransfersRejected(), metrics.getTransfersExpired(), metrics.getTransfersIncomplete(),
+                metrics.getTransfersInvalid()));
+        send(source, String.format("Chunks: %d corrupt, %d resend requests",
+                metrics.getCorruptChunks(), metrics.getResendRequests()));
+        send(source, "Reassembly ms: " + metrics.getReassemblyLatency());
+        send(source, "Broadcast us: " + metrics.getBroadcastTime());
+        send(source, "Drain us: " + metrics.getDrainTime());
+
+        for (SkinMetrics.PlayerTraffic traffic : metrics.getPlayers()) {
+            send(source, String.format("  %s: %s in, %s out, queue %d frames/%s, %d paused ticks, delay avg %.1f ms max %.1f ms",
+                    traffic.name, formatBytes(traffic.getReceived()), formatBytes(traffic.getSent()),
+                    traffic.sendQueue.getQueuedFrames(), formatBytes(traffic.sendQueue.getQueuedBytes()),
+                    traffic.sendQueue.getPausedTicks(), traffic.sendQueue.getAverageDelayMillis(),
+                    traffic.sendQueue.getMaxDelayMillis()));
+        }
+        return 1;
+    }
+
+    private static void send(ServerCommandSource source, String line) {
+        source.sendFeedback(() -> Text.literal(line), false);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
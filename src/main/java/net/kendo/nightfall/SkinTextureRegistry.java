@@ -0,0 +1,130 @@
+package net.kendo.nightfall;
+
+import net.kendo.nightfall.mixin.TextureManagerAccessor;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.AbstractTexture;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.client.texture.TextureManager;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every skin texture the mod registers - local, remote and history previews - keyed by content hash.
+ * Each texture has a stable id, skinchanger:skins/&lt;hash&gt;, and a reference count; the last
+ * {@link #release} destroys it. Render thread only.
+ */
+public class SkinTextureRegistry {
+    private static final Map<Identifier, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * A live texture
+     */
+    public static class Entry {
+        public final Identifier id;
+        public final int width;
+        public final int height;
+        int refs = 1;
+
+        Entry(Identifier id, int width, int height) {
+            this.id = id;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getRefs() {
+            return refs;
+        }
+
+        public long getBytes() {
+            return (long) width * height * 4;
+        }
+    }
+
+    public static Identifier idFor(String hash) {
+        return new Identifier("skinchanger", "skins/" + hash);
+    }
+
+    /**
+     * Take a reference to the live texture for a hash, or null if there is none
+     */
+    public static Identifier acquire(String hash) {
+        Entry entry = entries.get(idFor(hash));
+        if (entry == null) {
+            return null;
+        }
+        entry.refs++;
+        return entry.id;
+    }
+
+    /**
+     * Register the texture for a hash and take the first reference to it.
+     * If the hash is already live, the given texture is closed and the live one is shared instead.
+     */
+    public static Identifier register(String hash, AbstractTexture texture, int width, int height) {
+        Identifier id = idFor(hash);
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            texture.close();
+            entry.refs++;
+            return id;
+        }
+
+        MinecraftClient.getInstance().getTextureManager().registerTexture(id, texture);
+        entries.put(id, new Entry(id, width, height));
+        return id;
+    }
+
+    /**
+     * Register a decoded image as a plain texture, see {@link #register(String, AbstractTexture, int, int)}
+     */
+    public static Identifier register(String hash, NativeImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (entries.containsKey(idFor(hash))) {
+            image.close();
+            return acquire(hash);
+        }
+        return register(hash, new NativeImageBackedTexture(image), width, height);
+    }
+
+    /**
+     * Drop a reference; the texture is destroyed when the last one goes. Null and unknown ids are ignored.
+     */
+    public static void release(Identifier id) {
+        Entry entry = id != null ? entries.get(id) : null;
+        if (entry == null) {
+            return;
+        }
+        if (--entry.refs <= 0) {
+            entries.remove(id);
+            // Unmap and free it the way the texture manager replaces one; destroyTexture would leave the id mapped
+            TextureManager textureManager = MinecraftClient.getInstance().getTextureManager();
+            AbstractTexture texture = ((TextureManagerAccessor) textureManager).getTexturesAccessor().remove(id);
+            if (texture != null) {
+                texture.close();
+                texture.clearGlId();
+            }
+        }
+    }
+
+    public static boolean isLive(Identifier id) {
+        return id != null && entries.containsKey(id);
+    }
+
+    public static List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public static long getTotalBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.getBytes();
+        }
+        return total;
+    }
+}
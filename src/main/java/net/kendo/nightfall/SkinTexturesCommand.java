@@ -0,0 +1,34 @@
+package net.kendo.nightfall;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.text.Text;
+
+import java.util.List;
+
+/**
+ * /skintextures - client-side dump of live skin textures and the memory they hold
+ */
+public class SkinTexturesCommand {
+
+    public static void register(CommandDispatcher<FabricClientCommandSource> dispatcher) {
+        dispatcher.register(ClientCommandManager.literal("skintextures")
+                .executes(SkinTexturesCommand::execute));
+    }
+
+    private static int execute(CommandContext<FabricClientCommandSource> context) {
+        FabricClientCommandSource source = context.getSource();
+        List<SkinTextureRegistry.Entry> entries = SkinTextureRegistry.getEntries();
+
+        source.sendFeedback(Text.literal(String.format("Skin textures: %d live, %.1f KB, %d skins queued",
+                entries.size(), SkinTextureRegistry.getTotalBytes() / 1024.0, RemoteSkinLoader.getQueuedCount())));
+        for (SkinTextureRegistry.Entry entry : entries) {
+            source.sendFeedback(Text.literal(String.format("  %s: %dx%d, %.1f KB, %d refs",
+                    entry.id, entry.width, entry.height, entry.getBytes() / 1024.0, entry.getRefs())));
+        }
+        NightfallSkin.LOGGER.info("Skin textures: {} live, {} bytes", entries.size(), SkinTextureRegistry.getTotalBytes());
+        return 1;
+    }
+}
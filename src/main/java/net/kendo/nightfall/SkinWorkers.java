@@ -0,0 +1,55 @@
+package net.kendo.nightfall;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pieces of the small worker pools that decode and validate skins off the main threads
+ */
+public class SkinWorkers {
+    // Threads per pool; the game and server threads keep the rest of the cores
+    public static final int THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * Daemon threads named "name #1", "name #2", ...
+     */
+    public static ThreadFactory threadFactory(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Latest piece of work per player, so results of superseded work can be dropped
+     */
+    public static class Generations {
+        private final Map<UUID, AtomicLong> generations = new ConcurrentHashMap<>();
+
+        /**
+         * Start new work for a player, superseding whatever came before
+         */
+        public long next(UUID owner) {
+            return generations.computeIfAbsent(owner, uuid -> new AtomicLong()).incrementAndGet();
+        }
+
+        public boolean isCurrent(UUID owner, long generation) {
+            AtomicLong current = generations.get(owner);
+            return current != null && current.get() == generation;
+        }
+
+        public void remove(UUID owner) {
+            generations.remove(owner);
+        }
+
+        public void clear() {
+            generations.clear();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.kendo.nightfall;
+
+import com.mojang.blaze3d.platform.TextureUtil;
+import net.minecraft.client.texture.AbstractTexture;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.resource.ResourceManager;
+
+/**
+ * A skin texture filled in bands of rows over several frames.
+ * GPU storage is allocated up front; each call to {@link #uploadNextTile()} sends one band
+ * with a sub-image upload. It is only registered once complete, so whatever it replaces
+ * stays on screen until then.
+ */
+public class TiledSkinTexture extends AbstractTexture {
+    // Bytes per sub-image upload: 32 rows of a 512 skin
+    private static final int TILE_BYTES = 64 * 1024;
+
+    private NativeImage image;
+    private final int tileRows;
+    private int uploadedRows = 0;
+
+    /**
+     * Render thread only; takes ownership of the image
+     */
+    public TiledSkinTexture(NativeImage image) {
+        this.image = image;
+        this.tileRows = Math.max(1, TILE_BYTES / (image.getWidth() * 4));
+        TextureUtil.prepareImage(getGlId(), image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Whether an image is big enough to be worth spreading over frames
+     */
+    public static boolean needsTiling(NativeImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4 > TILE_BYTES;
+    }
+
+    /**
+     * Upload the next band of rows; true once the whole image is on the GPU.
+     * The pixel copy is freed at that point, nothing reads it back.
+     */
+    public boolean uploadNextTile() {
+        if (image == null) {
+            return true;
+        }
+
+        int rows = Math.min(tileRows, image.getHeight() - uploadedRows);
+        bindTexture();
+        image.upload(0, 0, uploadedRows, 0, uploadedRows, image.getWidth(), rows, false, false);
+        uploadedRows += rows;
+
+        if (uploadedRows >= image.getHeight()) {
+            image.close();
+            image = null;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void load(ResourceManager manager) {
+        // Pixels arrive through uploadNextTile, not from resources
+    }
+
+    @Override
+    public void close() {
+        if (image != null) {
+            image.close();
+            image = null;
+        }
+        clearGlId();
+    }
+}
@@ -0,0 +1,239 @@
+package net.kendo.nightfall.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossless skin codec tuned for the 64x64 layout.
+ *
+ * Pixels the player model never samples are skipped entirely (they decode as transparent);
+ * the rest are written as a QOI-style op stream (index / diff / luma / run / literal),
+ * which collapses the large flat areas typical of skins, then deflated at the fastest level.
+ *
+ * Layout: magic (int), flags (byte), width (short), height (short), deflated op stream.
+ */
+public class CompactSkinCodec implements SkinCodec {
+    private static final int MAGIC = 0x4E534B31; // "NSK1"
+    private static final int FLAG_MASKED = 1;
+    private static final int MAX_SIZE = 1024;
+
+    private static final int OP_INDEX = 0x00;
+    private static final int OP_DIFF = 0x40;
+    private static final int OP_LUMA = 0x80;
+    private static final int OP_RUN = 0xC0;
+    private static final int OP_RGB = 0xFE;
+    private static final int OP_RGBA = 0xFF;
+
+    @Override
+    public byte getId() {
+        return SkinCodecs.COMPACT;
+    }
+
+    @Override
+    public String getName() {
+        return "compact";
+    }
+
+    @Override
+    public byte[] encode(SkinPixels pixels) throws IOException {
+        boolean masked = SkinLayout.isSkinLayout(pixels.width, pixels.height);
+        boolean[] mask = masked ? SkinLayout.maskFor(pixels.width) : null;
+
+        ByteArrayOutputStream ops = new ByteArrayOutputStream(pixels.argb.length);
+        int[] index = new int[64];
+        int prev = 0xFF000000;
+        int run = 0;
+
+        for (int i = 0; i < pixels.argb.length; i++) {
+            if (mask != null && !mask[i]) {
+                continue;
+            }
+
+            int px = pixels.argb[i];
+            if (px == prev) {
+                if (++run == 62) {
+                    ops.write(OP_RUN | (run - 1));
+                    run = 0;
+                }
+                continue;
+            }
+
+            if (run > 0) {
+                ops.write(OP_RUN | (run - 1));
+                run = 0;
+            }
+
+            int slot = hash(px);
+            if (index[slot] == px) {
+                ops.write(OP_INDEX | slot);
+            } else {
+                index[slot] = px;
+
+                if ((px >>> 24) == (prev >>> 24)) {
+                    int dr = (byte) (((px >> 16) & 0xFF) - ((prev >> 16) & 0xFF));
+                    int dg = (byte) (((px >> 8) & 0xFF) - ((prev >> 8) & 0xFF));
+                    int db = (byte) ((px & 0xFF) - (prev & 0xFF));
+                    int drDg = dr - dg;
+                    int dbDg = db - dg;
+
+                    if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1) {
+                        ops.write(OP_DIFF | ((dr + 2) << 4) | ((dg + 2) << 2) | (db + 2));
+                    } else if (dg >= -32 && dg <= 31 && drDg >= -8 && drDg <= 7 && dbDg >= -8 && dbDg <= 7) {
+                        ops.write(OP_LUMA | (dg + 32));
+                        ops.write(((drDg + 8) << 4) | (dbDg + 8));
+                    } else {
+                        ops.write(OP_RGB);
+                        ops.write((px >> 16) & 0xFF);
+                        ops.write((px >> 8) & 0xFF);
+                        ops.write(px & 0xFF);
+                    }
+                } else {
+                    ops.write(OP_RGBA);
+                    ops.write((px >> 16) & 0xFF);
+                    ops.write((px >> 8) & 0xFF);
+                    ops.write(px & 0xFF);
+                    ops.write((px >>> 24) & 0xFF);
+                }
+            }
+            prev = px;
+        }
+        if (run > 0) {
+            ops.write(OP_RUN | (run - 1));
+        }
+
+        byte[] raw = ops.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            ByteBuffer header = ByteBuffer.allocate(9);
+            header.putInt(MAGIC);
+            header.put((byte) (masked ? FLAG_MASKED : 0));
+            header.putShort((short) pixels.width);
+            header.putShort((short) pixels.height);
+            out.write(header.array());
+
+            byte[] block = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(block);
+                out.write(block, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public SkinPixels decode(byte[] data) throws IOException {
+        if (data.length < 9) {
+            throw new IOException("Compact skin too short");
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(data, 0, 9);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a compact skin");
+        }
+        int flags = header.get();
+        int width = header.getShort() & 0xFFFF;
+        int height = header.getShort() & 0xFFFF;
+        if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IOException("Invalid compact skin size " + width + "x" + height);
+        }
+
+        boolean masked = (flags & FLAG_MASKED) != 0;
+        if (masked && !SkinLayout.isSkinLayout(width, height)) {
+            throw new IOException("Masked compact skin with non-skin size " + width + "x" + height);
+        }
+        boolean[] mask = masked ? SkinLayout.maskFor(width) : null;
+
+        byte[] ops = inflate(data, 9, width * height * 5);
+        int[] argb = new int[width * height];
+        int[] index = new int[64];
+        int px = 0xFF000000;
+        int run = 0;
+        int pos = 0;
+
+        for (int i = 0; i < argb.length; i++) {
+            if (mask != null && !mask[i]) {
+                continue;
+            }
+
+            if (run > 0) {
+                run--;
+            } else {
+                if (pos >= ops.length) {
+                    throw new IOException("Truncated compact skin");
+                }
+                int b1 = ops[pos++] & 0xFF;
+
+                if (b1 == OP_RGB) {
+                    px = (px & 0xFF000000) | ((ops[pos] & 0xFF) << 16) | ((ops[pos + 1] & 0xFF) << 8) | (ops[pos + 2] & 0xFF);
+                    pos += 3;
+                } else if (b1 == OP_RGBA) {
+                    px = ((ops[pos + 3] & 0xFF) << 24) | ((ops[pos] & 0xFF) << 16) | ((ops[pos + 1] & 0xFF) << 8) | (ops[pos + 2] & 0xFF);
+                    pos += 4;
+                } else if ((b1 & 0xC0) == OP_INDEX) {
+                    px = index[b1];
+                } else if ((b1 & 0xC0) == OP_DIFF) {
+                    px = addRgb(px, ((b1 >> 4) & 3) - 2, ((b1 >> 2) & 3) - 2, (b1 & 3) - 2);
+                } else if ((b1 & 0xC0) == OP_LUMA) {
+                    int b2 = ops[pos++] & 0xFF;
+                    int dg = (b1 & 0x3F) - 32;
+                    px = addRgb(px, dg + ((b2 >> 4) & 0xF) - 8, dg, dg + (b2 & 0xF) - 8);
+                } else {
+                    run = b1 & 0x3F;
+                }
+                index[hash(px)] = px;
+            }
+            argb[i] = px;
+        }
+
+        return new SkinPixels(width, height, argb);
+    }
+
+    private static int hash(int px) {
+        int a = (px >>> 24) & 0xFF;
+        int r = (px >> 16) & 0xFF;
+        int g = (px >> 8) & 0xFF;
+        int b = px & 0xFF;
+        return (r * 3 + g * 5 + b * 7 + a * 11) % 64;
+    }
+
+    private static int addRgb(int px, int dr, int dg, int db) {
+        int r = (((px >> 16) & 0xFF) + dr) & 0xFF;
+        int g = (((px >> 8) & 0xFF) + dg) & 0xFF;
+        int b = ((px & 0xFF) + db) & 0xFF;
+        return (px & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int maxLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxLength, 64 * 1024));
+            byte[] block = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(block);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compact skin");
+                }
+                out.write(block, 0, count);
+                if (out.size() > maxLength) {
+                    throw new IOException("Compact skin op stream too large");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compact skin", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
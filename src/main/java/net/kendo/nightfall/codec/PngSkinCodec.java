@@ -0,0 +1,58 @@
+package net.kendo.nightfall.codec;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Plain PNG, understood by every version of the mod
+ */
+public class PngSkinCodec implements SkinCodec {
+    // Bytes readSize needs: the signature and the start of IHDR up to the height
+    public static final int HEADER_SIZE = 24;
+
+    @Override
+    public byte getId() {
+        return SkinCodecs.PNG;
+    }
+
+    @Override
+    public String getName() {
+        return "png";
+    }
+
+    @Override
+    public byte[] encode(SkinPixels pixels) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(pixels.toImage(), "PNG", baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    public SkinPixels decode(byte[] data) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IOException("Failed to decode PNG skin");
+        }
+        return SkinPixels.fromImage(image);
+    }
+
+    /**
+     * Width and height from the PNG header, without decoding anything
+     */
+    public static int[] readSize(byte[] data) throws IOException {
+        // 8-byte signature, then the IHDR chunk: length, type, width, height
+        if (data.length < HEADER_SIZE || data[0] != (byte) 0x89 || data[1] != 'P' || data[2] != 'N' || data[3] != 'G'
+                || data[12] != 'I' || data[13] != 'H' || data[14] != 'D' || data[15] != 'R') {
+            throw new IOException("not a PNG");
+        }
+        return new int[]{readInt(data, 16), readInt(data, 20)};
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,19 @@
+package net.kendo.nightfall.codec;
+
+import java.io.IOException;
+
+/**
+ * Wire format for skin images
+ */
+public interface SkinCodec {
+    /**
+     * Id sent on the wire, see {@link SkinCodecs}
+     */
+    byte getId();
+
+    String getName();
+
+    byte[] encode(SkinPixels pixels) throws IOException;
+
+    SkinPixels decode(byte[] data) throws IOException;
+}
@@ -0,0 +1,63 @@
+package net.kendo.nightfall.codec;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Registry of skin codecs and codec negotiation helpers
+ */
+public class SkinCodecs {
+    public static final byte PNG = 0;
+    public static final byte COMPACT = 1;
+
+    private static final SkinCodec[] CODECS = {new PngSkinCodec(), new CompactSkinCodec()};
+
+    // Most preferred first; PNG is always the fallback
+    private static final byte[] PREFERENCE = {COMPACT, PNG};
+
+    /**
+     * Codec for a wire id, or null if unknown
+     */
+    public static SkinCodec get(byte id) {
+        return id >= 0 && id < CODECS.length ? CODECS[id] : null;
+    }
+
+    /**
+     * Ids of every codec this build understands
+     */
+    public static byte[] supportedIds() {
+        byte[] ids = new byte[CODECS.length];
+        for (int i = 0; i < CODECS.length; i++) {
+            ids[i] = CODECS[i].getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Best codec both we and the peer understand
+     */
+    public static byte choose(Set<Byte> peerCodecs) {
+        for (byte id : PREFERENCE) {
+            if (peerCodecs.contains(id)) {
+                return id;
+            }
+        }
+        return PNG;
+    }
+
+    /**
+     * Re-encode a payload from one codec to another
+     */
+    public static byte[] transcode(byte[] data, byte from, byte to) throws IOException {
+        if (from == to) {
+            return data;
+        }
+
+        SkinCodec source = get(from);
+        SkinCodec target = get(to);
+        if (source == null || target == null) {
+            throw new IOException("Unknown skin codec " + (source == null ? from : to));
+        }
+        return target.encode(source.decode(data));
+    }
+}
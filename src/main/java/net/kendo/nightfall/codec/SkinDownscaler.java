@@ -0,0 +1,148 @@
+package net.kendo.nightfall.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Box-filter reduction of square skins, exact when the target divides the source size.
+ *
+ * Skin sizes are multiples of 64, so for any target that is also a multiple of 64 every
+ * output texel averages an area lying inside a single texel of the 64x64 UV layout:
+ * neighbouring UV islands are never mixed, unlike bilinear sampling.
+ * Averaging is alpha-weighted, so transparent texels don't darken the edges of opaque ones.
+ */
+public class SkinDownscaler {
+
+    /**
+     * Sizes to try for a skin of the given size, largest first, capped at maxSize: the largest
+     * multiple of 64 under the cap, then the exact reductions (multiples of 64 that divide it).
+     * The first entry is only inexact when no exact reduction is that large, e.g. 256 for a 448 skin.
+     */
+    public static List<Integer> targetSizes(int size, int maxSize) {
+        List<Integer> sizes = new ArrayList<>();
+        int largest = Math.min(size, maxSize) / SkinLayout.BASE_SIZE * SkinLayout.BASE_SIZE;
+        for (int target = largest; target >= SkinLayout.BASE_SIZE; target -= SkinLayout.BASE_SIZE) {
+            if (target == largest || size % target == 0) {
+                sizes.add(target);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Reduce a square skin to targetSize, a multiple of 64 no larger than its size
+     */
+    public static SkinPixels downscale(SkinPixels source, int targetSize) {
+        if (source.width != source.height || targetSize <= 0 || targetSize > source.width
+                || targetSize % SkinLayout.BASE_SIZE != 0) {
+            throw new IllegalArgumentException("Cannot box-filter " + source.width + "x" + source.height
+                    + " to " + targetSize + "x" + targetSize);
+        }
+        if (source.width % targetSize != 0) {
+            return downscaleByArea(source, targetSize);
+        }
+
+        int factor = source.width / targetSize;
+        if (factor == 1) {
+            return source;
+        }
+
+        int[] src = source.argb;
+        int[] out = new int[targetSize * targetSize];
+        int sourceWidth = source.width;
+        int samples = factor * factor;
+
+        for (int y = 0; y < targetSize; y++) {
+            for (int x = 0; x < targetSize; x++) {
+                // Fits an int up to a 181x reduction; skins are at most 1024 -> 64 (16x)
+                int a = 0, r = 0, g = 0, b = 0;
+                int rowStart = (y * factor) * sourceWidth + x * factor;
+
+                for (int dy = 0; dy < factor; dy++) {
+                    int i = rowStart + dy * sourceWidth;
+                    for (int dx = 0; dx < factor; dx++, i++) {
+                        int px = src[i];
+                        int alpha = px >>> 24;
+                        a += alpha;
+                        r += ((px >> 16) & 0xFF) * alpha;
+                        g += ((px >> 8) & 0xFF) * alpha;
+                        b += (px & 0xFF) * alpha;
+                    }
+                }
+
+                if (a == 0) {
+                    continue; // fully transparent block stays 0
+                }
+                // Round to nearest in both the alpha-weighted colour and the alpha average
+                int outA = (a + samples / 2) / samples;
+                int outR = (r + a / 2) / a;
+                int outG = (g + a / 2) / a;
+                int outB = (b + a / 2) / a;
+                out[y * targetSize + x] = (outA << 24) | (outR << 16) | (outG << 8) | outB;
+            }
+        }
+        return new SkinPixels(targetSize, targetSize, out);
+    }
+
+    /**
+     * Box filter for a non-integer factor: each output texel averages the source area it covers,
+     * with partly covered source texels weighted by their overlap.
+     *
+     * Measured in units where a source texel is targetSize long and an output texel is sourceSize long,
+     * every overlap is a whole number, so the weights are exact integers.
+     */
+    private static SkinPixels downscaleByArea(SkinPixels source, int targetSize) {
+        int sourceSize = source.width;
+        int[] src = source.argb;
+        int[] out = new int[targetSize * targetSize];
+
+        // Source columns each output column overlaps, and by how much
+        int[] firstX = new int[targetSize];
+        int[][] weightX = new int[targetSize][];
+        for (int x = 0; x < targetSize; x++) {
+            int start = x * sourceSize;
+            int end = start + sourceSize;
+            int first = start / targetSize;
+            int last = (end - 1) / targetSize;
+            firstX[x] = first;
+            weightX[x] = new int[last - first + 1];
+            for (int i = first; i <= last; i++) {
+                weightX[x][i - first] = Math.min(end, (i + 1) * targetSize) - Math.max(start, i * targetSize);
+            }
+        }
+
+        long area = (long) sourceSize * sourceSize;
+        for (int y = 0; y < targetSize; y++) {
+            int[] rowWeights = weightX[y];
+            int firstY = firstX[y];
+            for (int x = 0; x < targetSize; x++) {
+                int[] columnWeights = weightX[x];
+                int first = firstX[x];
+                // Up to 255 * 255 * 1024^2 - needs a long
+                long a = 0, r = 0, g = 0, b = 0;
+
+                for (int dy = 0; dy < rowWeights.length; dy++) {
+                    int row = (firstY + dy) * sourceSize + first;
+                    for (int dx = 0; dx < columnWeights.length; dx++) {
+                        int px = src[row + dx];
+                        long alpha = (long) (px >>> 24) * rowWeights[dy] * columnWeights[dx];
+                        a += alpha;
+                        r += ((px >> 16) & 0xFF) * alpha;
+                        g += ((px >> 8) & 0xFF) * alpha;
+                        b += (px & 0xFF) * alpha;
+                    }
+                }
+
+                if (a == 0) {
+                    continue; // fully transparent area stays 0
+                }
+                int outA = (int) ((a + area / 2) / area);
+                int outR = (int) ((r + a / 2) / a);
+                int outG = (int) ((g + a / 2) / a);
+                int outB = (int) ((b + a / 2) / a);
+                out[y * targetSize + x] = (outA << 24) | (outR << 16) | (outG << 8) | outB;
+            }
+        }
+        return new SkinPixels(targetSize, targetSize, out);
+    }
+}
@@ -0,0 +1,74 @@
+package net.kendo.nightfall.codec;
+
+/**
+ * The 64x64 player skin UV layout. Marks which texels the player model actually samples;
+ * everything else is never rendered.
+ */
+public class SkinLayout {
+    public static final int BASE_SIZE = 64;
+
+    private static final boolean[] USED = new boolean[BASE_SIZE * BASE_SIZE];
+
+    static {
+        // Cuboid origin (u, v) and size (width, height, depth) for every base and overlay part.
+        // Arms use the wide (4px) layout, which also covers slim arms.
+        int[][] parts = {
+                {0, 0, 8, 8, 8},     // head
+                {32, 0, 8, 8, 8},    // hat
+                {16, 16, 8, 12, 4},  // body
+                {16, 32, 8, 12, 4},  // jacket
+                {40, 16, 4, 12, 4},  // right arm
+                {40, 32, 4, 12, 4},  // right sleeve
+                {32, 48, 4, 12, 4},  // left arm
+                {48, 48, 4, 12, 4},  // left sleeve
+                {0, 16, 4, 12, 4},   // right leg
+                {0, 32, 4, 12, 4},   // right pants
+                {16, 48, 4, 12, 4},  // left leg
+                {0, 48, 4, 12, 4}    // left pants
+        };
+
+        for (int[] part : parts) {
+            int u = part[0], v = part[1], w = part[2], h = part[3], d = part[4];
+            // Top and bottom faces
+            mark(u + d, v, w * 2, d);
+            // Right, front, left and back faces
+            mark(u, v + d, (d + w) * 2, h);
+        }
+    }
+
+    private static void mark(int x, int y, int width, int height) {
+        for (int row = y; row < y + height; row++) {
+            for (int col = x; col < x + width; col++) {
+                USED[row * BASE_SIZE + col] = true;
+            }
+        }
+    }
+
+    /**
+     * Whether a texel of the 64x64 layout is sampled by the player model
+     */
+    public static boolean isUsed(int x, int y) {
+        return USED[y * BASE_SIZE + x];
+    }
+
+    /**
+     * Whether an image of this size follows the square 64xN skin layout
+     */
+    public static boolean isSkinLayout(int width, int height) {
+        return width == height && width >= BASE_SIZE && width % BASE_SIZE == 0;
+    }
+
+    /**
+     * Per-pixel usage mask for a full-size image of the skin layout
+     */
+    public static boolean[] maskFor(int size) {
+        int scale = size / BASE_SIZE;
+        boolean[] mask = new boolean[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                mask[y * size + x] = USED[(y / scale) * BASE_SIZE + (x / scale)];
+            }
+        }
+        return mask;
+    }
+}
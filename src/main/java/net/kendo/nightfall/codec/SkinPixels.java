@@ -0,0 +1,37 @@
+package net.kendo.nightfall.codec;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Raw skin pixels in ARGB order, the common form every codec encodes from and decodes to
+ */
+public class SkinPixels {
+    public final int width;
+    public final int height;
+    public final int[] argb;
+
+    public SkinPixels(int width, int height, int[] argb) {
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    /**
+     * Read all pixels of an image in one pass
+     */
+    public static SkinPixels fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        return new SkinPixels(width, height, argb);
+    }
+
+    /**
+     * Wrap the pixels in an ARGB image
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+        return image;
+    }
+}
@@ -0,0 +1,13 @@
+package net.kendo.nightfall.mixin;
+
+import net.minecraft.network.ClientConnection;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(ServerPlayNetworkHandler.class)
+public interface ServerPlayNetworkHandlerAccessor {
+
+    @Accessor("connection")
+    ClientConnection getConnectionAccessor();
+}
@@ -0,0 +1,150 @@
+package net.kendo.nightfall.Network;
+
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+import net.kendo.nightfall.codec.SkinCodecs;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.NetworkSide;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.PacketCallbacks;
+import net.minecraft.util.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SkinFramesTest {
+    private static final int CHUNK_SIZE = 4096;
+    private static final int RECIPIENTS = 3;
+
+    /**
+     * A packet handed to the sender, with its bytes as they were at send time
+     */
+    private static class SentPacket {
+        final Identifier channel;
+        final PacketByteBuf buf;
+        final PacketCallbacks callbacks;
+        final byte[] bytes;
+
+        SentPacket(Identifier channel, PacketByteBuf buf, PacketCallbacks callbacks) {
+            this.channel = channel;
+            this.buf = buf;
+            this.callbacks = callbacks;
+            this.bytes = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), bytes);
+        }
+    }
+
+    @Test
+    void everyRecipientGetsTheSamePayload() {
+        SkinFrames frames = new SkinFrames(UUID.randomUUID(), "hash", skinData(10_000), SkinCodecs.PNG, false, CHUNK_SIZE);
+        List<List<SentPacket>> recipients = sendToRecipients(frames);
+
+        List<SentPacket> first = recipients.get(0);
+        assertEquals(frames.getChunkCount() + 2, first.size());
+        assertEquals(SkinNetworkHandler.SYNC_SKIN_START, first.get(0).channel);
+        assertEquals(SkinNetworkHandler.SYNC_SKIN_END, first.get(first.size() - 1).channel);
+
+        for (List<SentPacket> other : recipients.subList(1, recipients.size())) {
+            assertEquals(first.size(), other.size());
+            for (int i = 0; i < first.size(); i++) {
+                assertEquals(first.get(i).channel, other.get(i).channel);
+                assertArrayEquals(first.get(i).bytes, other.get(i).bytes, "frame " + i);
+            }
+        }
+
+        completeWrites(recipients);
+        frames.release();
+    }
+
+    @Test
+    void buffersAreFreedOnceWritesFinishAndOwnerReleases() {
+        SkinFrames frames = new SkinFrames(UUID.randomUUID(), "hash", skinData(10_000), SkinCodecs.PNG, false, CHUNK_SIZE);
+        List<List<SentPacket>> recipients = sendToRecipients(frames);
+
+        // The owner's reference and one per recipient still waiting on its write
+        for (SentPacket packet : recipients.get(0)) {
+            assertEquals(1 + RECIPIENTS, packet.buf.refCnt());
+        }
+
+        completeWrites(recipients);
+        for (SentPacket packet : recipients.get(0)) {
+            assertEquals(1, packet.buf.refCnt());
+        }
+
+        frames.release();
+        for (List<SentPacket> sent : recipients) {
+            for (SentPacket packet : sent) {
+                assertEquals(0, packet.buf.refCnt());
+            }
+        }
+    }
+
+    @Test
+    void ownerReleaseBeforeWritesFinishKeepsBuffersAlive() {
+        SkinFrames frames = new SkinFrames(UUID.randomUUID(), "hash", skinData(10_000), SkinCodecs.PNG, false, CHUNK_SIZE);
+        List<List<SentPacket>> recipients = sendToRecipients(frames);
+
+        // e.g. the owner changed skin while the frames were still being written
+        frames.release();
+        for (SentPacket packet : recipients.get(0)) {
+            assertTrue(packet.buf.refCnt() > 0);
+        }
+
+        completeWrites(recipients);
+        for (SentPacket packet : recipients.get(0)) {
+            assertEquals(0, packet.buf.refCnt());
+        }
+    }
+
+    private static List<List<SentPacket>> sendToRecipients(SkinFrames frames) {
+        List<List<SentPacket>> recipients = new ArrayList<>();
+        for (int i = 0; i < RECIPIENTS; i++) {
+            List<SentPacket> sent = new ArrayList<>();
+            SkinSendQueue queue = new SkinSendQueue(recordingSender(sent), new ClientConnection(NetworkSide.CLIENTBOUND));
+            frames.queueTo(queue);
+            queue.flush(Integer.MAX_VALUE);
+            recipients.add(sent);
+        }
+        return recipients;
+    }
+
+    /**
+     * What Netty does once each packet is written
+     */
+    private static void completeWrites(List<List<SentPacket>> recipients) {
+        for (List<SentPacket> sent : recipients) {
+            for (SentPacket packet : sent) {
+                packet.callbacks.onSuccess();
+            }
+        }
+    }
+
+    /**
+     * A sender that keeps what it is given instead of writing it.
+     * Only the channel overload the send queue uses for shared frames is answered.
+     */
+    private static PacketSender recordingSender(List<SentPacket> sent) {
+        return (PacketSender) Proxy.newProxyInstance(PacketSender.class.getClassLoader(), new Class<?>[]{PacketSender.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("sendPacket") && args != null && args.length == 3
+                            && args[0] instanceof Identifier) {
+                        sent.add(new SentPacket((Identifier) args[0], (PacketByteBuf) args[1], (PacketCallbacks) args[2]));
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.toString());
+                });
+    }
+
+    private static byte[] skinData(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,87 @@
+package net.kendo.nightfall;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Time to write skin pixels into an off-heap RGBA buffer at 64, 128, 256 and 512.
+ * Decoded pixels (non-PNG codecs) go straight through {@link SkinImages#putAbgr}; for an ImageIO-style
+ * TYPE_4BYTE_ABGR image, the old getRGB and setColor per pixel is timed against one bulk getRGB
+ * followed by putAbgr.
+ *
+ * Run with ./gradlew skinImagesBenchmark. The target is a direct native-order buffer laid
+ * out like a NativeImage's, so no game natives are needed. Each case is warmed up for a
+ * fixed time, then run back to back for a fixed time; the mean time per image is reported.
+ */
+public class SkinImagesBenchmark {
+    private static final int[] SIZES = {64, 128, 256, 512};
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    // Keeps results alive so the work isn't optimized away
+    static long sink = 0;
+
+    public static void main(String[] args) {
+        System.out.printf("JDK %s, %s %s, %d cores%n", System.getProperty("java.version"),
+                System.getProperty("os.name"), System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%5s %12s %14s %14s %8s%n", "size", "pixels us", "old image us", "new image us", "speedup");
+
+        for (int size : SIZES) {
+            int pixelCount = size * size;
+            int[] argb = new Random(size).ints(pixelCount).toArray();
+            IntBuffer target = ByteBuffer.allocateDirect(pixelCount * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+            double pixelsMicros = measure(() -> SkinImages.putAbgr(argb, pixelCount, target), target);
+
+            BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+            image.setRGB(0, 0, size, size, argb, 0, size);
+            double oldImageMicros = measure(() -> putImagePerPixel(image, target), target);
+            double newImageMicros = measure(() -> SkinImages.putAbgr(image.getRGB(0, 0, size, size, null, 0, size),
+                    pixelCount, target), target);
+
+            System.out.printf(Locale.ROOT, "%5d %12.2f %14.2f %14.2f %7.1fx%n", size, pixelsMicros,
+                    oldImageMicros, newImageMicros, oldImageMicros / newImageMicros);
+        }
+    }
+
+    /**
+     * The old image converter: getRGB and setColor once per pixel
+     */
+    private static void putImagePerPixel(BufferedImage image, IntBuffer target) {
+        int width = image.getWidth();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                int px = image.getRGB(x, y);
+                target.put(x + y * width, (px & 0xFF00FF00) | ((px >> 16) & 0xFF) | ((px & 0xFF) << 16));
+            }
+        }
+    }
+
+    /**
+     * Mean microseconds per call after warm-up
+     */
+    private static double measure(Runnable operation, IntBuffer target) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            target.clear();
+            operation.run();
+            sink += target.get(target.capacity() / 2);
+        }
+
+        int calls = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            target.clear();
+            operation.run();
+            sink += target.get(target.capacity() / 2);
+            calls++;
+            now = System.nanoTime();
+        } while (now - start < MEASURE_NANOS);
+        return (now - start) / (calls * 1_000.0);
+    }
+}
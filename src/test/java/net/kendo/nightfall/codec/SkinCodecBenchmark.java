@@ -0,0 +1,87 @@
+package net.kendo.nightfall.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Size, encode time and decode time of every skin codec against PNG, on the sample skins
+ * in src/test/resources/skins at each exact reduction of them (512, 256, 128, 64).
+ *
+ * Run with ./gradlew skinCodecBenchmark. Each operation is warmed up for a fixed time,
+ * then run back to back for a fixed time; the mean time per call is reported.
+ * PNG is encoded with the codec the mod uses (ImageIO), not taken from the sample file.
+ */
+public class SkinCodecBenchmark {
+    private static final String[] SAMPLES = {"sample-64.png", "sample-512-a.png", "sample-512-b.png", "sample-512-c.png"};
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    // Keeps results alive so the work isn't optimized away
+    static long sink = 0;
+
+    private interface Operation {
+        Object run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("JDK %s, %s %s, %d cores%n", System.getProperty("java.version"),
+                System.getProperty("os.name"), System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-18s %5s %-8s %9s %7s %10s %10s%n", "sample", "size", "codec", "bytes", "vs png", "encode ms", "decode ms");
+
+        for (String sample : SAMPLES) {
+            SkinPixels original = load(sample);
+            for (int size : SkinDownscaler.targetSizes(original.width, original.width)) {
+                SkinPixels pixels = SkinDownscaler.downscale(original, size);
+                byte[] png = SkinCodecs.get(SkinCodecs.PNG).encode(pixels);
+
+                for (byte id : SkinCodecs.supportedIds()) {
+                    SkinCodec codec = SkinCodecs.get(id);
+                    byte[] encoded = codec.encode(pixels);
+                    double encodeMillis = measure(() -> codec.encode(pixels));
+                    double decodeMillis = measure(() -> codec.decode(encoded));
+
+                    System.out.printf(Locale.ROOT, "%-18s %5d %-8s %9d %6.0f%% %10.3f %10.3f%n", sample, size, codec.getName(),
+                            encoded.length, 100.0 * encoded.length / png.length, encodeMillis, decodeMillis);
+                }
+            }
+        }
+    }
+
+    private static SkinPixels load(String name) throws IOException {
+        try (InputStream in = SkinCodecBenchmark.class.getResourceAsStream("/skins/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing sample skin " + name);
+            }
+            return SkinCodecs.get(SkinCodecs.PNG).decode(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Mean milliseconds per call after warm-up
+     */
+    private static double measure(Operation operation) throws IOException {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            consume(operation.run());
+        }
+
+        int calls = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            consume(operation.run());
+            calls++;
+            now = System.nanoTime();
+        } while (now - start < MEASURE_NANOS);
+        return (now - start) / (calls * 1_000_000.0);
+    }
+
+    private static void consume(Object result) {
+        if (result instanceof byte[] bytes) {
+            sink += bytes.length;
+        } else if (result instanceof SkinPixels pixels) {
+            sink += pixels.argb[pixels.argb.length / 2];
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.kendo.nightfall.codec;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Time to reduce the 512 sample skins in src/test/resources/skins to 448, 256, 128 and 64:
+ * {@link SkinDownscaler} against the bilinear Graphics2D resize the upload path used before it.
+ * 448 is not an exact reduction of 512, so it goes through the area-weighted filter.
+ *
+ * Run with ./gradlew skinDownscalerBenchmark. The Graphics2D figure includes reading the result
+ * back to pixels, as the old path did before encoding. Each case is warmed up for a fixed time,
+ * then run back to back for a fixed time; the mean time per call is reported.
+ */
+public class SkinDownscalerBenchmark {
+    private static final String[] SAMPLES = {"sample-512-a.png", "sample-512-b.png", "sample-512-c.png"};
+    private static final int[] TARGETS = {448, 256, 128, 64};
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    // Keeps results alive so the work isn't optimized away
+    static long sink = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("JDK %s, %s %s, %d cores%n", System.getProperty("java.version"),
+                System.getProperty("os.name"), System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-18s %6s %14s %14s %8s%n", "sample", "target", "graphics2d ms", "box filter ms", "speedup");
+
+        for (String sample : SAMPLES) {
+            BufferedImage image = load(sample);
+            SkinPixels pixels = SkinPixels.fromImage(image);
+            for (int target : TARGETS) {
+                double graphicsMillis = measure(() -> SkinPixels.fromImage(downscaleImage(image, target)));
+                double boxMillis = measure(() -> SkinDownscaler.downscale(pixels, target));
+
+                System.out.printf(Locale.ROOT, "%-18s %6d %14.3f %14.3f %7.1fx%n", sample, target,
+                        graphicsMillis, boxMillis, graphicsMillis / boxMillis);
+            }
+        }
+    }
+
+    private static BufferedImage load(String name) throws IOException {
+        try (InputStream in = SkinDownscalerBenchmark.class.getResourceAsStream("/skins/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing sample skin " + name);
+            }
+            return ImageIO.read(in);
+        }
+    }
+
+    /**
+     * The resize the upload path used before the box filter
+     */
+    private static BufferedImage downscaleImage(BufferedImage original, int size) {
+        BufferedImage resized = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.drawImage(original, 0, 0, size, size, null);
+        graphics.dispose();
+        return resized;
+    }
+
+    /**
+     * Mean milliseconds per call after warm-up
+     */
+    private static double measure(Supplier<SkinPixels> operation) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            sink += operation.get().argb[0];
+        }
+
+        int calls = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            sink += operation.get().argb[0];
+            calls++;
+            now = System.nanoTime();
+        } while (now - start < MEASURE_NANOS);
+        return (now - start) / (calls * 1_000_000.0);
+    }
+}